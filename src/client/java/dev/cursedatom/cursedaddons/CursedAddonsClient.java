@@ -6,10 +6,16 @@ import dev.cursedatom.cursedaddons.config.utils.GenericEditScreen;
 import dev.cursedatom.cursedaddons.features.chatkeybindings.Macro;
 import dev.cursedatom.cursedaddons.features.doublechatfix.DoubleChatFix;
 import dev.cursedatom.cursedaddons.features.images.ImageHoverPreview;
+import dev.cursedatom.cursedaddons.features.images.ImageJobScheduler;
+import dev.cursedatom.cursedaddons.features.images.RecentImages;
+import dev.cursedatom.cursedaddons.features.images.VisibleChatPrefetcher;
 import dev.cursedatom.cursedaddons.utils.ConfigProvider;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
 import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.ServerData;
+import net.minecraft.client.gui.screens.ChatScreen;
 import net.minecraft.client.gui.screens.Screen;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.resources.Identifier;
@@ -17,6 +23,7 @@ import net.minecraft.resources.Identifier;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * Main client-side initializer for CursedAddons mod.
@@ -40,6 +47,9 @@ public class CursedAddonsClient implements ClientModInitializer {
 			return sounds;
 		});
 
+		ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> RecentImages.onJoin(getServerKey(client)));
+		ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> RecentImages.onDisconnect());
+
 		ClientTickEvents.START_CLIENT_TICK.register(client -> {
 			if (Macro.isEnabled()) {
 				Macro.tick();
@@ -49,12 +59,28 @@ public class CursedAddonsClient implements ClientModInitializer {
 		ClientTickEvents.END_CLIENT_TICK.register(client -> {
 			if (CommandRegistry.shouldOpenConfigScreen) {
 				Screen currentScreen = Minecraft.getInstance().screen;
-				if (currentScreen instanceof net.minecraft.client.gui.screens.ChatScreen) {
+				if (currentScreen instanceof ChatScreen) {
 					Minecraft.getInstance().setScreen(null);
 				}
 				Minecraft.getInstance().setScreen(ConfigScreenGenerator.getConfigScreen(currentScreen));
 				CommandRegistry.shouldOpenConfigScreen = false;
 			}
+			ImageJobScheduler.tick();
+			VisibleChatPrefetcher.tick(client);
 		});
 	}
+
+	/**
+	 * Identifies the current server for per-server state: its address, or the world name in singleplayer.
+	 */
+	private static String getServerKey(Minecraft client) {
+		ServerData server = client.getCurrentServer();
+		if (server != null) {
+			return server.ip.toLowerCase(Locale.ROOT);
+		}
+		if (client.getSingleplayerServer() != null) {
+			return "singleplayer/" + client.getSingleplayerServer().getWorldData().getLevelName();
+		}
+		return null;
+	}
 }
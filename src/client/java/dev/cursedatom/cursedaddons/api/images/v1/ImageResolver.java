@@ -0,0 +1,37 @@
+package dev.cursedatom.cursedaddons.api.images.v1;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Resolves links on specific hosts to direct image URLs for the image hover preview, e.g. a
+ * screenshot host's share page to the screenshot itself. Registered through an
+ * {@link ImageResolverEntrypoint}.
+ *
+ * CursedAddons owns everything around the call: URLs are dispatched by host, results are
+ * cached (and persisted across restarts), failures are backed off, and calls count against
+ * the per-host rate limit of the link's host. Links still need embed resolution enabled in
+ * the user's whitelist, and the returned URL must itself be whitelisted to load.
+ */
+public interface ImageResolver {
+    /**
+     * Hosts this resolver handles, lower-case without scheme or port. Subdomains are included:
+     * {@code example.com} also covers {@code cdn.example.com}. Read once at registration.
+     */
+    List<String> hosts();
+
+    /**
+     * Returns true if this resolver can handle {@code url}, which is on one of {@link #hosts()}.
+     * Called while a link is hovered, so it must be cheap. Accepts every URL by default.
+     */
+    default boolean matches(String url) {
+        return true;
+    }
+
+    /**
+     * Starts resolving {@code url} and must not block. The future completes with the direct
+     * image URL, or with null if the link has no image. A future that fails or takes too long
+     * is cancelled and recorded as a failure.
+     */
+    CompletableFuture<String> resolve(String url);
+}
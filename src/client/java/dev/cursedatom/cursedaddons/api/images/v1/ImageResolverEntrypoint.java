@@ -0,0 +1,18 @@
+package dev.cursedatom.cursedaddons.api.images.v1;
+
+/**
+ * Fabric entrypoint for contributing {@link ImageResolver}s. Declare the implementing class
+ * in {@code fabric.mod.json} under {@value #KEY}:
+ * <pre>{@code
+ * "entrypoints": {
+ *   "cursedaddons:image_resolvers_v1": ["com.example.MyImageResolvers"]
+ * }
+ * }</pre>
+ * Called once during client initialization.
+ */
+@FunctionalInterface
+public interface ImageResolverEntrypoint {
+    String KEY = "cursedaddons:image_resolvers_v1";
+
+    void registerImageResolvers(ImageResolverRegistry registry);
+}
@@ -0,0 +1,13 @@
+package dev.cursedatom.cursedaddons.api.images.v1;
+
+/**
+ * Passed to {@link ImageResolverEntrypoint#registerImageResolvers}.
+ */
+@FunctionalInterface
+public interface ImageResolverRegistry {
+    /**
+     * Registers a resolver for its {@link ImageResolver#hosts()}. A resolver for a host takes
+     * over from any resolver registered for that exact host before it, built-in ones included.
+     */
+    void register(ImageResolver resolver);
+}
@@ -8,6 +8,9 @@ import com.mojang.brigadier.Command;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.context.CommandContext;
 import dev.cursedatom.cursedaddons.CursedAddons;
+import dev.cursedatom.cursedaddons.features.images.ImageDiskCache;
+import dev.cursedatom.cursedaddons.features.images.RecentImages;
+import dev.cursedatom.cursedaddons.features.images.UrlResolver;
 import dev.cursedatom.cursedaddons.utils.MessageUtils;
 import dev.cursedatom.cursedaddons.utils.TextUtils;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
@@ -20,7 +23,8 @@ import static net.fabricmc.fabric.api.client.command.v2.ClientCommands.argument;
 import static net.fabricmc.fabric.api.client.command.v2.ClientCommands.literal;
 
 /**
- * Registers client-side commands for CursedAddons, including {@code /cursedaddons} and {@code /cursedaddons fakechat}.
+ * Registers client-side commands for CursedAddons, including {@code /cursedaddons}, {@code /cursedaddons fakechat}
+ * and {@code /cursedaddons imagecache}.
  */
 public class CommandRegistry {
     public static boolean shouldOpenConfigScreen = false;
@@ -43,6 +47,12 @@ public class CommandRegistry {
                         .executes(CommandRegistry::executeFakeChat)
                     )
                 )
+                .then(literal("imagecache")
+                    .executes(CommandRegistry::executeImageCacheStats)
+                    .then(literal("clear")
+                        .executes(CommandRegistry::executeImageCacheClear)
+                    )
+                )
             );
         });
     }
@@ -53,6 +63,27 @@ public class CommandRegistry {
          });
     }
 
+    private static int executeImageCacheStats(CommandContext<FabricClientCommandSource> context) {
+        ImageDiskCache.Stats stats = ImageDiskCache.getStats();
+        MessageUtils.sendToNonPublicChat(TextUtils.trans("texts.ImageCache.Stats",
+            stats.entries(),
+            String.format("%.1f", stats.bytes() / 1024.0 / 1024.0),
+            stats.maxBytes() / 1024 / 1024,
+            String.format("%.1f", stats.hitRate() * 100),
+            stats.hits(),
+            stats.revalidated(),
+            stats.stale() - stats.revalidated() + stats.misses()));
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private static int executeImageCacheClear(CommandContext<FabricClientCommandSource> context) {
+        ImageDiskCache.clear();
+        UrlResolver.clearCache();
+        RecentImages.clear();
+        MessageUtils.sendToNonPublicChat(TextUtils.trans("texts.ImageCache.Cleared"));
+        return Command.SINGLE_SUCCESS;
+    }
+
     private static int executeFakeChat(CommandContext<FabricClientCommandSource> context) {
         String json = StringArgumentType.getString(context, "json");
         try {
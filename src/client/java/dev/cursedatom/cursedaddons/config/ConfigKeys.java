@@ -15,6 +15,16 @@ public final class ConfigKeys {
     public static final String IMAGE_PREVIEW_ENABLED = "imagepreview.Preview.Enabled";
     public static final String IMAGE_DETECT_PLAIN_URLS = "imagepreview.Preview.DetectPlainTextUrls";
     public static final String IMAGE_MAX_FILE_SIZE_MB = "imagepreview.Preview.MaxFileSizeMB";
+    public static final String IMAGE_MAX_MEGAPIXELS = "imagepreview.Preview.MaxImageMegapixels";
+    public static final String IMAGE_DISK_CACHE_ENABLED = "imagepreview.Preview.DiskCacheEnabled";
+    public static final String IMAGE_DISK_CACHE_SIZE_MB = "imagepreview.Preview.DiskCacheSizeMB";
+    public static final String IMAGE_HOST_MAX_CONNECTIONS = "imagepreview.Preview.HostMaxConnections";
+    public static final String IMAGE_HOST_REQUESTS_PER_SECOND = "imagepreview.Preview.HostRequestsPerSecond";
+    public static final String IMAGE_PREFETCH_ENABLED = "imagepreview.Preview.PrefetchEnabled";
+    public static final String IMAGE_PREFETCH_VISIBLE_ENABLED = "imagepreview.Preview.PrefetchVisibleEnabled";
+    public static final String IMAGE_PREFETCH_MAX_CONCURRENT = "imagepreview.Preview.PrefetchMaxConcurrent";
+    public static final String IMAGE_PREFETCH_MEGABYTES_PER_MINUTE = "imagepreview.Preview.PrefetchMegabytesPerMinute";
+    public static final String IMAGE_PREFETCH_MEGAPIXELS_PER_MINUTE = "imagepreview.Preview.PrefetchMegapixelsPerMinute";
     public static final String IMAGE_WHITELIST = "imagepreview.Preview.Whitelist";
     public static final String CONFIG_VERSION = "config.version";
 
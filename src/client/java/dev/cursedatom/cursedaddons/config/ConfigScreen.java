@@ -197,6 +197,21 @@ public class ConfigScreen extends Screen {
                             this.init();
                         }).bounds(centerX, contentY, BUTTON_WIDTH, BUTTON_HEIGHT).build());
                     contentY += 25;
+                } else if (("integer".equals(type) || "number".equals(type))
+                        && item.getOptions() != null && !item.getOptions().isEmpty()) {
+                    boolean integral = "integer".equals(type);
+                    List<Double> options = item.getOptions();
+                    double value = ConfigProvider.getDouble(key, options.get(0));
+                    String label = item.getLabelKey() != null ? trans(item.getLabelKey()).getString() : trans(key).getString();
+                    this.addRenderableWidget(Button.builder(
+                        Component.literal(label + ": §f" + formatNumber(value)),
+                        button -> {
+                            double next = nextOption(options, value);
+                            ConfigProvider.set(key, integral ? (Object) (int) next : (Object) next);
+                            this.clearWidgets();
+                            this.init();
+                        }).bounds(centerX, contentY, BUTTON_WIDTH, BUTTON_HEIGHT).build());
+                    contentY += 25;
                 } else if ("list".equals(type) && !item.isHidden()) {
                     ListManager<?> manager = managers.get(key);
                     if (manager != null) {
@@ -214,6 +229,18 @@ public class ConfigScreen extends Screen {
         }).bounds(centerX, this.height - 40, BUTTON_WIDTH, BUTTON_HEIGHT).build());
     }
 
+    // A hand-edited value that isn't one of the presets steps to the next larger one
+    private static double nextOption(List<Double> options, double current) {
+        for (double option : options) {
+            if (option > current) return option;
+        }
+        return options.get(0);
+    }
+
+    private static String formatNumber(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+    }
+
     private void addListManagement(int startY, int centerX, ListManager<?> manager) {
         Runnable refreshScreen = () -> {
             this.clearWidgets();
@@ -4,7 +4,8 @@ import java.util.List;
 
 /**
  * POJO representing a single config item within a {@link Category}, deserialized from {@code config_gui.json}.
- * An item may be a boolean toggle, a list with editable entries, or hidden.
+ * An item may be a boolean toggle, an integer or number cycled through preset {@code options},
+ * a list with editable entries, or hidden.
  */
 public class ConfigItem {
     private String type;
@@ -12,6 +13,7 @@ public class ConfigItem {
     private String labelKey;
     private String descriptionKey;
     private List<FieldDefinition> fields;
+    private List<Double> options;
     private boolean hidden;
 
     public ConfigItem() {}
@@ -56,6 +58,14 @@ public class ConfigItem {
         this.fields = fields;
     }
 
+    public List<Double> getOptions() {
+        return options;
+    }
+
+    public void setOptions(List<Double> options) {
+        this.options = options;
+    }
+
     public boolean isHidden() {
         return hidden;
     }
@@ -0,0 +1,104 @@
+package dev.cursedatom.cursedaddons.features.images;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * HTTP freshness information stored alongside a cached response: the {@code ETag} and
+ * {@code Last-Modified} validators used for conditional requests, and the absolute time
+ * until which the response may be reused without contacting the server.
+ *
+ * @param etag         {@code ETag} response header, or null
+ * @param lastModified {@code Last-Modified} response header, or null
+ * @param expiresAt    epoch millis after which the entry must be revalidated
+ * @param noStore      true if the server sent {@code Cache-Control: no-store}
+ */
+public record CacheValidators(String etag, String lastModified, long expiresAt, boolean noStore) {
+    // Used when the server sends neither max-age/Expires nor Last-Modified
+    private static final long DEFAULT_FRESHNESS_MS = 60 * 60 * 1000L;
+    // Upper bound for the Last-Modified heuristic (RFC 9111 section 4.2.2)
+    private static final long MAX_HEURISTIC_FRESHNESS_MS = 24 * 60 * 60 * 1000L;
+
+    /**
+     * Builds validators from response headers. {@code header} returns the first value
+     * of the named header, or null if absent.
+     */
+    public static CacheValidators fromHeaders(Function<String, String> header) {
+        long now = System.currentTimeMillis();
+        String etag = header.apply("ETag");
+        String lastModified = header.apply("Last-Modified");
+        String cacheControl = header.apply("Cache-Control");
+
+        boolean noStore = false;
+        Long maxAgeMs = null;
+        if (cacheControl != null) {
+            for (String directive : cacheControl.toLowerCase(Locale.ROOT).split(",")) {
+                directive = directive.trim();
+                if (directive.equals("no-store")) {
+                    noStore = true;
+                } else if (directive.equals("no-cache")) {
+                    maxAgeMs = 0L;
+                } else if (directive.startsWith("max-age=") && maxAgeMs == null) {
+                    try {
+                        maxAgeMs = Math.max(0, Long.parseLong(directive.substring(8).replace("\"", ""))) * 1000L;
+                    } catch (NumberFormatException ignored) {}
+                }
+            }
+        }
+
+        long expiresAt;
+        if (maxAgeMs != null) {
+            expiresAt = now + maxAgeMs;
+        } else if (header.apply("Expires") != null) {
+            Long expires = parseHttpDate(header.apply("Expires"));
+            expiresAt = expires != null ? expires : now;
+        } else if (lastModified != null && parseHttpDate(lastModified) != null) {
+            long age = Math.max(0, now - parseHttpDate(lastModified));
+            expiresAt = now + Math.min(age / 10, MAX_HEURISTIC_FRESHNESS_MS);
+        } else {
+            expiresAt = now + DEFAULT_FRESHNESS_MS;
+        }
+
+        return new CacheValidators(etag, lastModified, expiresAt, noStore);
+    }
+
+    public boolean isFresh() {
+        return System.currentTimeMillis() < expiresAt;
+    }
+
+    public boolean canRevalidate() {
+        return etag != null || lastModified != null;
+    }
+
+    /**
+     * Adds {@code If-None-Match} / {@code If-Modified-Since} request headers for a conditional GET.
+     */
+    public void applyConditionalHeaders(BiConsumer<String, String> setHeader) {
+        if (etag != null) setHeader.accept("If-None-Match", etag);
+        if (lastModified != null) setHeader.accept("If-Modified-Since", lastModified);
+    }
+
+    /**
+     * Combines these stored validators with those of a 304 response, which may omit headers
+     * that are still valid. Freshness always comes from the newer response.
+     */
+    public CacheValidators updatedBy(CacheValidators notModified) {
+        return new CacheValidators(
+            notModified.etag != null ? notModified.etag : etag,
+            notModified.lastModified != null ? notModified.lastModified : lastModified,
+            notModified.expiresAt,
+            notModified.noStore
+        );
+    }
+
+    static Long parseHttpDate(String value) {
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
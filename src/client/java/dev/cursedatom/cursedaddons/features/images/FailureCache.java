@@ -0,0 +1,109 @@
+package dev.cursedatom.cursedaddons.features.images;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Capacity-bounded record of failed URLs and hosts, used by {@link ImageCache} and
+ * {@link UrlResolver} to avoid hammering links that just failed.
+ *
+ * A URL is held back for {@code baseBackoffMs} after its first transient failure, doubling
+ * with each consecutive failure up to {@code MAX_BACKOFF_MS}; a permanent failure
+ * ({@link FetchException#isPermanent()}) holds it back for {@code PERMANENT_BACKOFF_MS}.
+ * Transient failures also count against the URL's host: after {@code HOST_FAILURE_THRESHOLD}
+ * in a row every URL on that host backs off the same way, so a dead host is not retried
+ * once per link. A success clears both records. Entries are forgotten once their backoff
+ * has been over for {@code MAX_BACKOFF_MS}, and the least recently used are evicted at capacity.
+ */
+public final class FailureCache {
+    private static final long MAX_BACKOFF_MS = 10 * 60_000L;
+    private static final long PERMANENT_BACKOFF_MS = 30 * 60_000L;
+    private static final long HOST_BASE_BACKOFF_MS = 10_000;
+    private static final int HOST_FAILURE_THRESHOLD = 3;
+    private static final int MAX_HOSTS = 128;
+
+    private final long baseBackoffMs;
+    private final Map<String, Entry> urls;
+    private final Map<String, Entry> hosts = boundedMap(MAX_HOSTS);
+
+    public FailureCache(int capacity, long baseBackoffMs) {
+        this.baseBackoffMs = baseBackoffMs;
+        this.urls = boundedMap(capacity);
+    }
+
+    /**
+     * Returns the reason this URL (or its host) is backing off, or null if it may be fetched.
+     */
+    public synchronized String getBlockedReason(String url) {
+        long now = System.currentTimeMillis();
+        Entry entry = urls.get(url);
+        if (entry != null && now < entry.retryAt) {
+            return entry.reason;
+        }
+        Entry hostEntry = hosts.get(HttpFetcher.hostOf(url));
+        if (hostEntry != null && hostEntry.failures >= HOST_FAILURE_THRESHOLD && now < hostEntry.retryAt) {
+            return hostEntry.reason;
+        }
+        return null;
+    }
+
+    public synchronized void recordFailure(String url, Throwable cause) {
+        long now = System.currentTimeMillis();
+        purgeExpired(now);
+        Entry previous = urls.get(url);
+        // Several preview sizes can report the same failure; count it once
+        if (previous != null && now < previous.retryAt) return;
+
+        boolean permanent = cause instanceof FetchException fetchException && fetchException.isPermanent();
+        String reason = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        int failures = previous != null ? previous.failures + 1 : 1;
+        long backoff = permanent ? PERMANENT_BACKOFF_MS : backoff(baseBackoffMs, failures);
+        urls.put(url, new Entry(reason, failures, now + backoff));
+
+        if (!permanent) {
+            String host = HttpFetcher.hostOf(url);
+            Entry hostEntry = hosts.get(host);
+            int hostFailures = hostEntry != null ? hostEntry.failures + 1 : 1;
+            long hostBackoff = hostFailures >= HOST_FAILURE_THRESHOLD
+                ? backoff(HOST_BASE_BACKOFF_MS, hostFailures - HOST_FAILURE_THRESHOLD + 1) : 0;
+            hosts.put(host, new Entry(reason, hostFailures, now + hostBackoff));
+        }
+    }
+
+    public synchronized void recordSuccess(String url) {
+        urls.remove(url);
+        hosts.remove(HttpFetcher.hostOf(url));
+    }
+
+    public synchronized void clear() {
+        urls.clear();
+        hosts.clear();
+    }
+
+    private static long backoff(long base, int failures) {
+        int doublings = Math.min(failures - 1, 20);
+        return Math.min(base << doublings, MAX_BACKOFF_MS);
+    }
+
+    private void purgeExpired(long now) {
+        for (Map<String, Entry> map : List.of(urls, hosts)) {
+            Iterator<Entry> it = map.values().iterator();
+            while (it.hasNext()) {
+                if (now - it.next().retryAt > MAX_BACKOFF_MS) it.remove();
+            }
+        }
+    }
+
+    private static Map<String, Entry> boundedMap(int capacity) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    private record Entry(String reason, int failures, long retryAt) {}
+}
@@ -0,0 +1,27 @@
+package dev.cursedatom.cursedaddons.features.images;
+
+/**
+ * A fetch or decode failure whose outcome will not change on retry, such as an HTTP 404,
+ * a blocked address or a body that is not an image. Any other exception is treated as
+ * transient by {@link FailureCache}.
+ */
+public class FetchException extends Exception {
+    private final boolean permanent;
+
+    public FetchException(String message, boolean permanent) {
+        super(message);
+        this.permanent = permanent;
+    }
+
+    public boolean isPermanent() {
+        return permanent;
+    }
+
+    /**
+     * Permanent for client errors, except timeouts and rate limiting; transient for everything else.
+     */
+    public static FetchException forStatus(int status) {
+        boolean permanent = status >= 400 && status < 500 && status != 408 && status != 429;
+        return new FetchException("HTTP " + status, permanent);
+    }
+}
@@ -1,243 +1,664 @@
 package dev.cursedatom.cursedaddons.features.images;
 
-import dev.cursedatom.cursedaddons.CursedAddons;
-
-import javax.imageio.ImageIO;
-import javax.imageio.ImageReader;
-import javax.imageio.metadata.IIOMetadata;
-import javax.imageio.stream.ImageInputStream;
-import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
-
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.w3c.dom.NamedNodeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 
 /**
  * Decodes GIF files into individual frames with delay information.
- * Handles GIF disposal methods for correct frame compositing.
- * Frames are encoded to PNG immediately after compositing to reduce peak memory usage.
+ *
+ * The stream is parsed in one forward pass: each frame's LZW data is decoded straight into a
+ * single ARGB canvas, disposal is applied to that canvas in place, and every composited frame
+ * is handed on as soon as it is complete. Nothing is pre-scanned and no per-frame images are
+ * allocated. Composited frames are scaled and encoded to PNG on the decode pool while later
+ * frames are composited; at most {@code MAX_FRAMES_IN_FLIGHT} canvas snapshots are held at once,
+ * and each is dropped as soon as its PNG is written, so peak memory does not grow with frame count.
  */
 public final class GifDecoder {
     private static final int MAX_FRAMES = 200;
     private static final int DEFAULT_DELAY_MS = 100;
     private static final int MIN_DELAY_MS = 20;
+    private static final int MAX_CODES = 4096;
+    // Composited frames waiting for or being scaled and encoded on the decode pool
+    private static final int MAX_FRAMES_IN_FLIGHT = 4;
+
+    private static final int DISPOSE_BACKGROUND = 2;
+    private static final int DISPOSE_PREVIOUS = 3;
 
     private GifDecoder() {}
 
+    /**
+     * Receives each composited frame. {@code canvas} is reused for the next frame, so it must
+     * be copied (or fully consumed) before returning. Returning false stops decoding.
+     */
+    @FunctionalInterface
+    public interface FrameSink {
+        boolean frame(int[] canvas, int width, int height, int delayMs) throws Exception;
+    }
+
     public static GifData decode(InputStream inputStream, int maxWidth, int maxHeight) throws Exception {
-        Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("gif");
-        if (!readers.hasNext()) {
-            throw new Exception("No GIF ImageReader available");
+        return decode(inputStream, maxWidth, maxHeight, () -> false);
+    }
+
+    /**
+     * Decodes the GIF, checking {@code cancelled} before each frame and throwing
+     * {@link CancellationException} as soon as it returns true. Each frame is handed to a
+     * {@link FrameEncoder}, which scales and encodes it in parallel with compositing the next.
+     */
+    public static GifData decode(InputStream inputStream, int maxWidth, int maxHeight, BooleanSupplier cancelled) throws Exception {
+        FrameEncoder encoder = new FrameEncoder(maxWidth, maxHeight);
+        try {
+            decodeFrames(inputStream, cancelled, (canvas, width, height, delayMs) -> {
+                encoder.add(canvas, width, height, delayMs, false);
+                return true;
+            });
+            return encoder.finish();
+        } finally {
+            encoder.discard();
         }
+    }
 
-        ImageReader reader = readers.next();
-        try (ImageInputStream imageStream = ImageIO.createImageInputStream(inputStream)) {
-            reader.setInput(imageStream);
+    /**
+     * Composites every frame at full canvas size and keeps them, so several preview sizes can
+     * be encoded from one decode with {@link #encode}. Returns null, keeping nothing, once the
+     * frames would take more than {@code maxBytes}.
+     */
+    public static Frames composite(InputStream inputStream, BooleanSupplier cancelled, long maxBytes) throws Exception {
+        List<int[]> pixels = new ArrayList<>();
+        List<Integer> delays = new ArrayList<>();
+        int[] size = new int[2];
+        boolean[] tooLarge = {false};
+
+        decodeFrames(inputStream, cancelled, (canvas, width, height, delayMs) -> {
+            if ((pixels.size() + 1L) * canvas.length * Integer.BYTES > maxBytes) {
+                tooLarge[0] = true;
+                return false;
+            }
+            pixels.add(canvas.clone());
+            delays.add(delayMs);
+            size[0] = width;
+            size[1] = height;
+            return true;
+        });
+        if (tooLarge[0]) return null;
+
+        int[] frameDelays = new int[delays.size()];
+        for (int i = 0; i < frameDelays.length; i++) frameDelays[i] = delays.get(i);
+        return new Frames(pixels, frameDelays, size[0], size[1]);
+    }
 
-            int numFrames = Math.min(reader.getNumImages(true), MAX_FRAMES);
-            if (numFrames <= 0) {
-                throw new Exception("GIF has no frames");
+    /**
+     * Scales and encodes composited frames for one preview size. Every frame is already
+     * immutable, so up to {@code MAX_FRAMES_IN_FLIGHT} are encoded at once without copying.
+     */
+    public static GifData encode(Frames frames, int maxWidth, int maxHeight, BooleanSupplier cancelled) throws Exception {
+        FrameEncoder encoder = new FrameEncoder(maxWidth, maxHeight);
+        try {
+            for (int i = 0; i < frames.pixels().size(); i++) {
+                if (cancelled.getAsBoolean()) {
+                    throw new CancellationException("GIF encode cancelled");
+                }
+                encoder.add(frames.pixels().get(i), frames.width(), frames.height(), frames.delays()[i], true);
             }
+            return encoder.finish();
+        } finally {
+            encoder.discard();
+        }
+    }
 
-            // Read the first frame to get canvas dimensions
-            BufferedImage firstFrame = reader.read(0);
-            int canvasWidth = firstFrame.getWidth();
-            int canvasHeight = firstFrame.getHeight();
-
-            // Try to get logical screen dimensions from stream metadata
-            IIOMetadata streamMeta = reader.getStreamMetadata();
-            if (streamMeta != null) {
-                int[] screenDims = extractLogicalScreenDimensions(streamMeta);
-                if (screenDims != null) {
-                    canvasWidth = Math.max(canvasWidth, screenDims[0]);
-                    canvasHeight = Math.max(canvasHeight, screenDims[1]);
+    /**
+     * Parses the GIF and passes each composited frame (at most {@code MAX_FRAMES}) to
+     * {@code sink} at full canvas size. A stream truncated after the first frame ends the
+     * animation at the last complete frame instead of failing.
+     */
+    public static void decodeFrames(InputStream inputStream, BooleanSupplier cancelled, FrameSink sink) throws Exception {
+        InputStream in = inputStream instanceof ByteArrayInputStream || inputStream instanceof BufferedInputStream
+            ? inputStream : new BufferedInputStream(inputStream);
+        Parser parser = new Parser(in);
+        parser.readHeader();
+
+        int frames = 0;
+        try {
+            while (frames < MAX_FRAMES) {
+                int block = in.read();
+                if (block == 0x21) {
+                    parser.readExtension();
+                } else if (block == 0x2C) {
+                    if (cancelled.getAsBoolean()) {
+                        throw new CancellationException("GIF decode cancelled");
+                    }
+                    boolean complete = parser.readImage();
+                    frames++;
+                    if (!sink.frame(parser.canvas, parser.canvasWidth, parser.canvasHeight, parser.frameDelayMs) || !complete) break;
+                } else {
+                    // Trailer (0x3B), end of stream, or garbage after the last frame
+                    break;
                 }
             }
+        } catch (EOFException e) {
+            if (frames == 0) throw e;
+        }
+        if (frames == 0) {
+            throw new Exception("GIF has no frames");
+        }
+    }
 
-            // Calculate scaling factor to fit within max dimensions
-            float scale = calculateScale(canvasWidth, canvasHeight, maxWidth, maxHeight);
-            int scaledWidth = (int) (canvasWidth * scale);
-            int scaledHeight = (int) (canvasHeight * scale);
-            boolean needsScaling = scale < 1.0f;
+    private static float calculateScale(int width, int height, int maxWidth, int maxHeight) {
+        if (maxWidth <= 0 || maxHeight <= 0) {
+            return 1.0f;
+        }
+        float scaleX = (float) maxWidth / width;
+        float scaleY = (float) maxHeight / height;
+        return Math.min(Math.min(scaleX, scaleY), 1.0f);
+    }
 
-            List<byte[]> encodedFrames = new ArrayList<>();
-            int[] delays = new int[numFrames];
+    private static byte[] encode(BufferedImage frame, int width, int height) throws Exception {
+        if (width < frame.getWidth() || height < frame.getHeight()) {
+            BufferedImage scaled = ImageCache.progressiveDownscale(frame, width, height);
+            byte[] png = ImageCache.bufferedToPng(scaled);
+            scaled.flush();
+            return png;
+        }
+        return ImageCache.bufferedToPng(frame);
+    }
 
-            // Canvas for compositing frames at full resolution
-            BufferedImage canvas = new BufferedImage(canvasWidth, canvasHeight, BufferedImage.TYPE_INT_ARGB);
-            Graphics2D g = canvas.createGraphics();
-            g.setBackground(new Color(0, 0, 0, 0));
+    private static BufferedImage wrap(int[] pixels, int width, int height) {
+        ColorModel model = ColorModel.getRGBdefault();
+        WritableRaster raster = Raster.createPackedRaster(new DataBufferInt(pixels, width * height), width, height, width,
+            new int[]{0x00FF0000, 0x0000FF00, 0x000000FF, 0xFF000000}, null);
+        return new BufferedImage(model, raster, false, null);
+    }
 
-            BufferedImage previousCanvas = null;
-            String previousDisposal = "none";
-            Rectangle previousBounds = null;
+    /**
+     * Block parser and compositor for one stream. Holds the canvas and the state carried
+     * between frames: the pending graphic control values and the previous frame's disposal.
+     */
+    private static final class Parser {
+        private final InputStream in;
+
+        private int screenWidth;
+        private int screenHeight;
+        private int[] globalColors;
+
+        int[] canvas;
+        int canvasWidth;
+        int canvasHeight;
+
+        int frameDelayMs;
+
+        // From the graphic control extension preceding the next image
+        private int delayMs = DEFAULT_DELAY_MS;
+        private int disposal = 0;
+        private int transparentIndex = -1;
+
+        // Disposal owed by the previous frame, applied before the next one is drawn
+        private int pendingDisposal = 0;
+        private int pendingX, pendingY, pendingWidth, pendingHeight;
+        private int[] savedRegion;
+
+        // LZW tables, reused across frames
+        private final short[] prefix = new short[MAX_CODES];
+        private final byte[] suffix = new byte[MAX_CODES];
+        private final byte[] stack = new byte[MAX_CODES + 1];
+
+        // Sub-block bit reader
+        private int blockRemaining;
+        private boolean blocksEnded;
+        private int bitBuffer;
+        private int bitCount;
+
+        Parser(InputStream in) {
+            this.in = in;
+        }
 
-            try {
-                for (int i = 0; i < numFrames; i++) {
-                    BufferedImage rawFrame = (i == 0) ? firstFrame : reader.read(i);
-                    IIOMetadata metadata = reader.getImageMetadata(i);
-
-                    FrameInfo info = parseFrameInfo(metadata, rawFrame);
-                    delays[i] = info.delay;
-
-                    // Apply disposal from the previous frame before drawing the new one
-                    if (i > 0) {
-                        switch (previousDisposal) {
-                            case "restoreToBackgroundColor":
-                                if (previousBounds != null) {
-                                    g.setComposite(AlphaComposite.Clear);
-                                    g.fillRect(previousBounds.x, previousBounds.y,
-                                              previousBounds.width, previousBounds.height);
-                                    g.setComposite(AlphaComposite.SrcOver);
-                                }
-                                break;
-                            case "restoreToPrevious":
-                                if (previousCanvas != null) {
-                                    g.setComposite(AlphaComposite.Src);
-                                    g.drawImage(previousCanvas, 0, 0, null);
-                                    g.setComposite(AlphaComposite.SrcOver);
-                                }
-                                break;
-                            // "none" / "doNotDispose" — leave canvas as is
-                        }
-                    }
+        void readHeader() throws IOException {
+            byte[] signature = new byte[6];
+            readFully(signature);
+            if (signature[0] != 'G' || signature[1] != 'I' || signature[2] != 'F') {
+                throw new IOException("Not a GIF file");
+            }
+            screenWidth = readShort();
+            screenHeight = readShort();
+            int packed = readByte();
+            readByte(); // background colour index: disposed areas are cleared to transparent instead
+            readByte(); // pixel aspect ratio
+            if ((packed & 0x80) != 0) {
+                globalColors = readColorTable(2 << (packed & 0x07));
+            }
+        }
 
-                    // Save canvas before drawing if this frame's disposal is "restoreToPrevious"
-                    if ("restoreToPrevious".equals(info.disposal)) {
-                        if (previousCanvas != null) previousCanvas.flush();
-                        previousCanvas = copyImage(canvas);
+        void readExtension() throws IOException {
+            int label = readByte();
+            if (label == 0xF9) {
+                int size = readByte();
+                if (size >= 4) {
+                    int packed = readByte();
+                    int delayCs = readShort();
+                    int transparent = readByte();
+                    skipBytes(size - 4);
+                    disposal = (packed >> 2) & 0x07;
+                    transparentIndex = (packed & 0x01) != 0 ? transparent : -1;
+                    // GIF delay is in centiseconds (1/100 second)
+                    delayMs = delayCs * 10;
+                    if (delayMs < MIN_DELAY_MS) {
+                        delayMs = DEFAULT_DELAY_MS;
                     }
+                } else {
+                    skipBytes(size);
+                }
+            }
+            skipSubBlocks();
+        }
 
-                    // Draw current frame at its offset position (full resolution)
-                    g.drawImage(rawFrame, info.x, info.y, null);
+        /**
+         * Reads one image descriptor and its data onto the canvas. Returns false if the
+         * image data ended early; the partial frame is still composited.
+         */
+        boolean readImage() throws Exception {
+            int x = readShort();
+            int y = readShort();
+            int width = readShort();
+            int height = readShort();
+            int packed = readByte();
+            int[] colors = (packed & 0x80) != 0 ? readColorTable(2 << (packed & 0x07)) : globalColors;
+            boolean interlaced = (packed & 0x40) != 0;
+
+            if (canvas == null) {
+                // Frames are clipped to the logical screen, which ImageProbe has already checked;
+                // only a GIF that leaves it unset falls back to the first frame's size
+                canvasWidth = Math.max(1, screenWidth > 0 ? screenWidth : width);
+                canvasHeight = Math.max(1, screenHeight > 0 ? screenHeight : height);
+                ImageProbe.checkDimensions(canvasWidth, canvasHeight);
+                canvas = new int[canvasWidth * canvasHeight];
+            }
+            applyPendingDisposal();
+            if (disposal == DISPOSE_PREVIOUS) {
+                saveRegion(x, y, width, height);
+            }
 
-                    // Downscale composited frame using progressive scaling, then encode to PNG
-                    if (needsScaling) {
-                        BufferedImage scaled = ImageCache.progressiveDownscale(canvas, scaledWidth, scaledHeight);
-                        encodedFrames.add(ImageCache.bufferedToPng(scaled));
-                        scaled.flush();
-                    } else {
-                        encodedFrames.add(ImageCache.bufferedToPng(canvas));
-                    }
+            boolean complete = decodePixels(x, y, width, height, colors == null ? defaultColors() : colors, interlaced);
+
+            pendingDisposal = disposal;
+            pendingX = x;
+            pendingY = y;
+            pendingWidth = width;
+            pendingHeight = height;
+            frameDelayMs = delayMs;
+            // Graphic control values apply to one image only
+            delayMs = DEFAULT_DELAY_MS;
+            disposal = 0;
+            transparentIndex = -1;
+            return complete;
+        }
 
-                    previousDisposal = info.disposal;
-                    previousBounds = new Rectangle(info.x, info.y, rawFrame.getWidth(), rawFrame.getHeight());
-                    
-                    if (i > 0) rawFrame.flush();
+        private void applyPendingDisposal() {
+            if (pendingDisposal == DISPOSE_BACKGROUND && pendingX < canvasWidth) {
+                int right = Math.min(canvasWidth, pendingX + pendingWidth);
+                int bottom = Math.min(canvasHeight, pendingY + pendingHeight);
+                for (int row = pendingY; row < bottom; row++) {
+                    Arrays.fill(canvas, row * canvasWidth + pendingX, row * canvasWidth + right, 0);
                 }
-            } finally {
-                g.dispose();
-                canvas.flush();
-                if (previousCanvas != null) previousCanvas.flush();
-                firstFrame.flush();
+            } else if (pendingDisposal == DISPOSE_PREVIOUS && savedRegion != null) {
+                copyRegion(savedRegion, false);
             }
+            pendingDisposal = 0;
+        }
 
-            return new GifData(encodedFrames, delays, scaledWidth, scaledHeight);
-        } finally {
-            reader.dispose();
+        private void saveRegion(int x, int y, int width, int height) {
+            int clippedWidth = Math.max(0, Math.min(canvasWidth, x + width) - x);
+            int clippedHeight = Math.max(0, Math.min(canvasHeight, y + height) - y);
+            if (savedRegion == null || savedRegion.length < clippedWidth * clippedHeight) {
+                savedRegion = new int[clippedWidth * clippedHeight];
+            }
+            pendingX = x;
+            pendingY = y;
+            pendingWidth = width;
+            pendingHeight = height;
+            copyRegion(savedRegion, true);
         }
-    }
 
-    private static float calculateScale(int width, int height, int maxWidth, int maxHeight) {
-        if (maxWidth <= 0 || maxHeight <= 0) {
-            return 1.0f;
+        // Copies the pending rectangle (clipped to the canvas) between the canvas and region
+        private void copyRegion(int[] region, boolean toRegion) {
+            int clippedWidth = Math.min(canvasWidth, pendingX + pendingWidth) - pendingX;
+            if (clippedWidth <= 0) return;
+            int bottom = Math.min(canvasHeight, pendingY + pendingHeight);
+            for (int row = pendingY, offset = 0; row < bottom; row++, offset += clippedWidth) {
+                int canvasOffset = row * canvasWidth + pendingX;
+                if (toRegion) {
+                    System.arraycopy(canvas, canvasOffset, region, offset, clippedWidth);
+                } else {
+                    System.arraycopy(region, offset, canvas, canvasOffset, clippedWidth);
+                }
+            }
         }
-        float scaleX = (float) maxWidth / width;
-        float scaleY = (float) maxHeight / height;
-        return Math.min(Math.min(scaleX, scaleY), 1.0f);
-    }
 
-    private static FrameInfo parseFrameInfo(IIOMetadata metadata, BufferedImage frame) {
-        int delay = DEFAULT_DELAY_MS;
-        String disposal = "none";
-        int x = 0;
-        int y = 0;
+        /**
+         * Decodes the LZW stream of one image, writing each pixel straight to the canvas.
+         */
+        private boolean decodePixels(int frameX, int frameY, int frameWidth, int frameHeight, int[] colors, boolean interlaced) throws IOException {
+            int minCodeSize = readByte();
+            if (minCodeSize < 1 || minCodeSize > 11) {
+                throw new IOException("Invalid LZW code size " + minCodeSize);
+            }
+            blockRemaining = 0;
+            blocksEnded = false;
+            bitBuffer = 0;
+            bitCount = 0;
+
+            int clear = 1 << minCodeSize;
+            int end = clear + 1;
+            int available = clear + 2;
+            int codeSize = minCodeSize + 1;
+            int codeMask = (1 << codeSize) - 1;
+            int oldCode = -1;
+            int first = 0;
+            for (int code = 0; code < clear; code++) {
+                prefix[code] = 0;
+                suffix[code] = (byte) code;
+            }
 
-        try {
-            Node tree = metadata.getAsTree("javax_imageio_gif_image_1.0");
-            NodeList children = tree.getChildNodes();
-
-            for (int i = 0; i < children.getLength(); i++) {
-                Node child = children.item(i);
-
-                if ("GraphicControlExtension".equals(child.getNodeName())) {
-                    NamedNodeMap attrs = child.getAttributes();
-
-                    Node delayNode = attrs.getNamedItem("delayTime");
-                    if (delayNode != null) {
-                        int delayCs = Integer.parseInt(delayNode.getNodeValue());
-                        // GIF delay is in centiseconds (1/100 second)
-                        delay = delayCs * 10;
-                        if (delay < MIN_DELAY_MS) {
-                            delay = DEFAULT_DELAY_MS;
+            // Output position in frame coordinates; interlaced rows come in four passes
+            long total = (long) frameWidth * frameHeight;
+            long written = 0;
+            int column = 0;
+            int row = 0;
+            int pass = interlaced ? 1 : 0;
+            int rowStep = interlaced ? 8 : 1;
+            int transparent = transparentIndex;
+            boolean inCanvas = frameY < canvasHeight;
+            int rowBase = (frameY + row) * canvasWidth + frameX;
+
+            while (written < total) {
+                int code = readCode(codeSize);
+                if (code < 0) break;
+                if (code == clear) {
+                    codeSize = minCodeSize + 1;
+                    codeMask = (1 << codeSize) - 1;
+                    available = clear + 2;
+                    oldCode = -1;
+                    continue;
+                }
+                if (code == end) break;
+
+                int top = 0;
+                if (oldCode == -1) {
+                    if (code >= clear) break;
+                    stack[top++] = suffix[code];
+                    oldCode = code;
+                    first = code;
+                } else {
+                    int inCode = code;
+                    if (code >= available) {
+                        if (code > available) break;
+                        stack[top++] = (byte) first;
+                        code = oldCode;
+                    }
+                    while (code >= clear) {
+                        stack[top++] = suffix[code];
+                        code = prefix[code];
+                    }
+                    first = suffix[code] & 0xFF;
+                    stack[top++] = (byte) first;
+                    if (available < MAX_CODES) {
+                        prefix[available] = (short) oldCode;
+                        suffix[available] = (byte) first;
+                        available++;
+                        if ((available & codeMask) == 0 && available < MAX_CODES) {
+                            codeSize++;
+                            codeMask = (1 << codeSize) - 1;
                         }
                     }
+                    oldCode = inCode;
+                }
 
-                    Node disposalNode = attrs.getNamedItem("disposalMethod");
-                    if (disposalNode != null) {
-                        disposal = disposalNode.getNodeValue();
+                while (top > 0 && written < total) {
+                    int index = stack[--top] & 0xFF;
+                    if (index != transparent && inCanvas && frameX + column < canvasWidth) {
+                        canvas[rowBase + column] = index < colors.length ? colors[index] : 0xFF000000;
+                    }
+                    written++;
+                    if (++column == frameWidth) {
+                        column = 0;
+                        row += rowStep;
+                        while (interlaced && row >= frameHeight && pass < 4) {
+                            pass++;
+                            row = switch (pass) {
+                                case 2 -> 4;
+                                case 3 -> 2;
+                                default -> 1;
+                            };
+                            rowStep = pass == 4 ? 2 : pass == 3 ? 4 : 8;
+                        }
+                        inCanvas = frameY + row < canvasHeight;
+                        rowBase = (frameY + row) * canvasWidth + frameX;
                     }
                 }
+            }
+
+            if (!blocksEnded) skipSubBlocks();
+            return written == total;
+        }
+
+        private int readCode(int codeSize) throws IOException {
+            while (bitCount < codeSize) {
+                int next = readDataByte();
+                if (next < 0) return -1;
+                bitBuffer |= next << bitCount;
+                bitCount += 8;
+            }
+            int code = bitBuffer & ((1 << codeSize) - 1);
+            bitBuffer >>>= codeSize;
+            bitCount -= codeSize;
+            return code;
+        }
 
-                if ("ImageDescriptor".equals(child.getNodeName())) {
-                    NamedNodeMap attrs = child.getAttributes();
-                    Node xNode = attrs.getNamedItem("imageLeftPosition");
-                    Node yNode = attrs.getNamedItem("imageTopPosition");
-                    if (xNode != null) x = Integer.parseInt(xNode.getNodeValue());
-                    if (yNode != null) y = Integer.parseInt(yNode.getNodeValue());
+        // Next byte of the current image's sub-blocks, or -1 at the block terminator
+        private int readDataByte() throws IOException {
+            if (blocksEnded) return -1;
+            if (blockRemaining == 0) {
+                blockRemaining = readByte();
+                if (blockRemaining == 0) {
+                    blocksEnded = true;
+                    return -1;
                 }
             }
-        } catch (Exception e) {
-            CursedAddons.LOGGER.warn("[GifDecoder] Failed to parse frame metadata: " + e.getMessage());
+            blockRemaining--;
+            return readByte();
         }
 
-        return new FrameInfo(x, y, delay, disposal);
-    }
+        private void skipSubBlocks() throws IOException {
+            if (blockRemaining > 0) {
+                skipBytes(blockRemaining);
+                blockRemaining = 0;
+            }
+            int size;
+            while ((size = readByte()) != 0) {
+                skipBytes(size);
+            }
+            blocksEnded = true;
+        }
 
-    private static int[] extractLogicalScreenDimensions(IIOMetadata streamMeta) {
-        try {
-            Node tree = streamMeta.getAsTree("javax_imageio_gif_stream_1.0");
-            NodeList children = tree.getChildNodes();
-
-            for (int i = 0; i < children.getLength(); i++) {
-                Node child = children.item(i);
-                if ("LogicalScreenDescriptor".equals(child.getNodeName())) {
-                    NamedNodeMap attrs = child.getAttributes();
-                    int w = Integer.parseInt(attrs.getNamedItem("logicalScreenWidth").getNodeValue());
-                    int h = Integer.parseInt(attrs.getNamedItem("logicalScreenHeight").getNodeValue());
-                    if (w > 0 && h > 0) {
-                        return new int[]{w, h};
-                    }
+        private int[] readColorTable(int size) throws IOException {
+            byte[] rgb = new byte[size * 3];
+            readFully(rgb);
+            int[] colors = new int[size];
+            for (int i = 0; i < size; i++) {
+                colors[i] = 0xFF000000 | (rgb[i * 3] & 0xFF) << 16 | (rgb[i * 3 + 1] & 0xFF) << 8 | (rgb[i * 3 + 2] & 0xFF);
+            }
+            return colors;
+        }
+
+        // Images without any colour table are rare; fall back to a grey ramp
+        private int[] defaultColors() {
+            if (globalColors == null) {
+                globalColors = new int[256];
+                for (int i = 0; i < 256; i++) globalColors[i] = 0xFF000000 | i << 16 | i << 8 | i;
+            }
+            return globalColors;
+        }
+
+        private int readByte() throws IOException {
+            int value = in.read();
+            if (value < 0) throw new EOFException("Unexpected end of GIF");
+            return value;
+        }
+
+        private int readShort() throws IOException {
+            return readByte() | readByte() << 8;
+        }
+
+        private void readFully(byte[] buffer) throws IOException {
+            int read = 0;
+            while (read < buffer.length) {
+                int count = in.read(buffer, read, buffer.length - read);
+                if (count < 0) throw new EOFException("Unexpected end of GIF");
+                read += count;
+            }
+        }
+
+        private void skipBytes(int count) throws IOException {
+            while (count > 0) {
+                long skipped = in.skip(count);
+                if (skipped <= 0) {
+                    readByte();
+                    skipped = 1;
                 }
+                count -= (int) skipped;
             }
-        } catch (Exception e) {}
-        return null;
+        }
     }
 
-    private static BufferedImage copyImage(BufferedImage source) {
-        BufferedImage copy = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = copy.createGraphics();
-        g.drawImage(source, 0, 0, null);
-        g.dispose();
-        return copy;
+    /**
+     * Full-size composited frames from {@link #composite}. The arrays are never written again.
+     */
+    public record Frames(List<int[]> pixels, int[] delays, int width, int height) {}
+
+    /**
+     * The parallel half of the pipeline: compositing is sequential, but each composited frame
+     * is scaled and encoded on {@link ImageExecutors#decode()} while the caller moves on. At
+     * most {@code MAX_FRAMES_IN_FLIGHT} frames are queued or encoding at once; when all are
+     * taken the frame is encoded on the calling thread instead. Frames come back in order.
+     */
+    private static final class FrameEncoder {
+        private final int maxWidth;
+        private final int maxHeight;
+        private final List<FrameTask> tasks = new ArrayList<>();
+        private final Semaphore inFlight = new Semaphore(MAX_FRAMES_IN_FLIGHT);
+        private int scaledWidth;
+        private int scaledHeight;
+
+        FrameEncoder(int maxWidth, int maxHeight) {
+            this.maxWidth = maxWidth;
+            this.maxHeight = maxHeight;
+        }
+
+        /**
+         * Queues a frame. Unless {@code immutable}, {@code pixels} is the live canvas: it is
+         * snapshotted before being handed to a worker, and only read inline otherwise.
+         */
+        void add(int[] pixels, int width, int height, int delayMs, boolean immutable) {
+            if (tasks.isEmpty()) {
+                float scale = calculateScale(width, height, maxWidth, maxHeight);
+                scaledWidth = Math.max(1, (int) (width * scale));
+                scaledHeight = Math.max(1, (int) (height * scale));
+            }
+            if (inFlight.tryAcquire()) {
+                int[] snapshot = immutable ? pixels : pixels.clone();
+                FrameTask task = new FrameTask(wrap(snapshot, width, height), scaledWidth, scaledHeight, delayMs, inFlight);
+                tasks.add(task);
+                ImageExecutors.decode().execute(task);
+            } else {
+                FrameTask task = new FrameTask(wrap(pixels, width, height), scaledWidth, scaledHeight, delayMs, null);
+                tasks.add(task);
+                task.run();
+            }
+        }
+
+        GifData finish() throws Exception {
+            List<byte[]> encodedFrames = new ArrayList<>(tasks.size());
+            int[] delays = new int[tasks.size()];
+            for (int i = 0; i < tasks.size(); i++) {
+                FrameTask task = tasks.get(i);
+                // Encodes it here if it is still waiting behind other work in the pool
+                task.run();
+                encodedFrames.add(task.get());
+                delays[i] = task.delayMs;
+            }
+            return new GifData(encodedFrames, delays, scaledWidth, scaledHeight);
+        }
+
+        /**
+         * Skips frames still queued after a failure or cancellation.
+         */
+        void discard() {
+            for (FrameTask task : tasks) {
+                if (task.claim()) task.frame = null;
+            }
+        }
     }
 
-    private static class FrameInfo {
-        final int x;
-        final int y;
-        final int delay;
-        final String disposal;
-
-        FrameInfo(int x, int y, int delay, String disposal) {
-            this.x = x;
-            this.y = y;
-            this.delay = delay;
-            this.disposal = disposal;
+    /**
+     * Scales and encodes one composited frame. Runs once, on whichever thread claims it
+     * first: a decode-pool worker or the compositor collecting results.
+     */
+    private static final class FrameTask implements Runnable {
+        // Dropped once encoded (or skipped) so finished tasks only hold their PNG bytes
+        private BufferedImage frame;
+        private final int width;
+        private final int height;
+        final int delayMs;
+        private final Semaphore inFlight;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+
+        FrameTask(BufferedImage frame, int width, int height, int delayMs, Semaphore inFlight) {
+            this.frame = frame;
+            this.width = width;
+            this.height = height;
+            this.delayMs = delayMs;
+            this.inFlight = inFlight;
+        }
+
+        @Override
+        public void run() {
+            if (!claim()) return;
+            try {
+                result.complete(encode(frame, width, height));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            } finally {
+                frame = null;
+                if (inFlight != null) inFlight.release();
+            }
+        }
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        byte[] get() throws Exception {
+            try {
+                return result.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception cause) throw cause;
+                throw e;
+            }
         }
     }
 
@@ -0,0 +1,210 @@
+package dev.cursedatom.cursedaddons.features.images;
+
+import dev.cursedatom.cursedaddons.config.ConfigKeys;
+import dev.cursedatom.cursedaddons.utils.ConfigProvider;
+
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-host limits for outbound requests made by {@link HttpFetcher}: a cap on requests in
+ * flight and a token bucket on the request rate. Requests over either limit wait in that
+ * host's FIFO queue instead of failing.
+ *
+ * A 429 or 503 halves the host's rate and pauses it for the server's {@code Retry-After}
+ * (or {@code DEFAULT_BACKOFF_MS}); each successful response then recovers the rate by
+ * {@code RATE_RECOVERY_STEP} up to the configured value.
+ *
+ * Hosts come from chat, so state is dropped again by {@link #prune()} once a host is idle:
+ * nothing queued or in flight, not paused, and its rate and bucket back at their defaults.
+ */
+public final class HostLimiter {
+    private static final int DEFAULT_MAX_CONNECTIONS = 4;
+    private static final double DEFAULT_REQUESTS_PER_SECOND = 4;
+    private static final double MIN_REQUESTS_PER_SECOND = 0.25;
+    private static final double RATE_RECOVERY_STEP = 0.25;
+    private static final long DEFAULT_BACKOFF_MS = 5_000;
+    private static final long MAX_BACKOFF_MS = 60_000;
+    private static final long PRUNE_INTERVAL_MS = 30_000;
+
+    private static final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+    private static volatile long nextPruneAt = 0;
+
+    private HostLimiter() {}
+
+    public static int getMaxConnections() {
+        return Math.max(1, ConfigProvider.getInt(ConfigKeys.IMAGE_HOST_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS));
+    }
+
+    // Requests per second; fractions allowed, down to one request every 4 seconds
+    private static double getConfiguredRate() {
+        return Math.max(MIN_REQUESTS_PER_SECOND, ConfigProvider.getDouble(ConfigKeys.IMAGE_HOST_REQUESTS_PER_SECOND, DEFAULT_REQUESTS_PER_SECOND));
+    }
+
+    /**
+     * Completes with a permit once a request to {@code host} may start. The permit must be
+     * released when the request finishes, including its response body.
+     */
+    public static CompletableFuture<Permit> acquire(String host) {
+        CompletableFuture<Permit> waiter = new CompletableFuture<>();
+        while (true) {
+            HostState state = stateFor(host);
+            synchronized (state) {
+                // Pruned between the lookup and here: start over with a fresh state
+                if (state.retired) continue;
+                state.waiters.add(waiter);
+            }
+            drain(state);
+            return waiter;
+        }
+    }
+
+    /**
+     * Forgets hosts that are idle and fully recovered, at most once per {@code PRUNE_INTERVAL_MS}.
+     * Called from {@link ImageJobScheduler#tick()}.
+     */
+    static void prune() {
+        long now = System.currentTimeMillis();
+        if (now < nextPruneAt) return;
+        nextPruneAt = now + PRUNE_INTERVAL_MS;
+        double configuredRate = getConfiguredRate();
+        hosts.values().removeIf(state -> state.retireIfIdle(now, configuredRate));
+    }
+
+    /**
+     * Records a 429/503 from {@code host}. {@code retryAfterMs} is the server's requested
+     * delay, or a negative value if it sent none.
+     */
+    public static void reportThrottled(String host, long retryAfterMs) {
+        HostState state = stateFor(host);
+        long backoff = retryAfterMs >= 0 ? Math.min(retryAfterMs, MAX_BACKOFF_MS) : DEFAULT_BACKOFF_MS;
+        synchronized (state) {
+            state.rate = Math.max(MIN_REQUESTS_PER_SECOND, state.rate / 2);
+            state.tokens = 0;
+            state.pausedUntil = Math.max(state.pausedUntil, System.currentTimeMillis() + backoff);
+        }
+    }
+
+    public static void reportSuccess(String host) {
+        HostState state = stateFor(host);
+        synchronized (state) {
+            state.rate = Math.min(getConfiguredRate(), state.rate + RATE_RECOVERY_STEP);
+        }
+    }
+
+    private static HostState stateFor(String host) {
+        return hosts.computeIfAbsent(host.toLowerCase(Locale.ROOT), key -> new HostState(getConfiguredRate()));
+    }
+
+    /**
+     * Hands out permits to queued waiters while both limits allow, then schedules a
+     * wake-up for when the next token is due.
+     */
+    private static void drain(HostState state) {
+        Queue<CompletableFuture<Permit>> granted = new ArrayDeque<>();
+        long wakeInMs = -1;
+        synchronized (state) {
+            long now = System.currentTimeMillis();
+            state.refill(now);
+            int maxConnections = getMaxConnections();
+            while (!state.waiters.isEmpty() && state.inFlight < maxConnections) {
+                if (now < state.pausedUntil) {
+                    wakeInMs = state.pausedUntil - now;
+                    break;
+                }
+                if (state.tokens < 1) {
+                    wakeInMs = (long) Math.ceil((1 - state.tokens) * 1000 / state.rate);
+                    break;
+                }
+                CompletableFuture<Permit> waiter = state.waiters.poll();
+                if (waiter.isDone()) continue;
+                state.tokens -= 1;
+                state.inFlight++;
+                granted.add(waiter);
+            }
+            if (wakeInMs >= 0) {
+                // One pending wake-up per host is enough; it re-drains and reschedules if needed
+                if (state.wakeScheduled) {
+                    wakeInMs = -1;
+                } else {
+                    state.wakeScheduled = true;
+                }
+            }
+        }
+
+        for (CompletableFuture<Permit> waiter : granted) {
+            Permit permit = new Permit(state);
+            if (!waiter.complete(permit)) {
+                permit.release();
+            }
+        }
+
+        if (wakeInMs >= 0) {
+            CompletableFuture.runAsync(() -> {
+                synchronized (state) {
+                    state.wakeScheduled = false;
+                }
+                drain(state);
+            }, CompletableFuture.delayedExecutor(Math.max(1, wakeInMs), TimeUnit.MILLISECONDS, ImageExecutors.io()));
+        }
+    }
+
+    /**
+     * A granted request slot. Releasing it more than once has no effect.
+     */
+    public static final class Permit {
+        private final HostState state;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(HostState state) {
+            this.state = state;
+        }
+
+        public void release() {
+            if (!released.compareAndSet(false, true)) return;
+            synchronized (state) {
+                state.inFlight--;
+            }
+            drain(state);
+        }
+    }
+
+    private static class HostState {
+        final Queue<CompletableFuture<Permit>> waiters = new ArrayDeque<>();
+        int inFlight = 0;
+        double rate;
+        double tokens;
+        long lastRefill;
+        long pausedUntil = 0;
+        boolean wakeScheduled = false;
+        boolean retired = false;
+
+        HostState(double rate) {
+            this.rate = rate;
+            // Allow a burst of one second's worth of requests
+            this.tokens = rate;
+            this.lastRefill = System.currentTimeMillis();
+        }
+
+        void refill(long now) {
+            tokens = Math.min(Math.max(rate, 1), tokens + (now - lastRefill) * rate / 1000.0);
+            lastRefill = now;
+        }
+
+        synchronized boolean retireIfIdle(long now, double configuredRate) {
+            refill(now);
+            if (!waiters.isEmpty() || inFlight > 0 || wakeScheduled || now < pausedUntil
+                    || rate < configuredRate || tokens < Math.max(rate, 1)) {
+                return false;
+            }
+            retired = true;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package dev.cursedatom.cursedaddons.features.images;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.security.Security;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SSRF guard for {@link HttpFetcher}: resolves a host once, checks every A/AAAA record it
+ * returns, and caches the verdict for a short TTL so hot CDNs skip the lookup.
+ *
+ * {@link java.net.http.HttpClient} has no hook for supplying a pre-resolved address, so the
+ * connection is pinned through the JVM's own lookup cache instead: the client resolves via
+ * {@link InetAddress} and gets the same cached entry vetted here. For that to hold, entries
+ * here expire {@code JVM_CACHE_MARGIN_MS} before the JVM's ({@code networkaddress.cache.ttl}).
+ * If the JVM does not cache lookups, nothing is cached here either and every hop re-checks.
+ * Pinning the socket to the vetted address directly would mean connecting by IP, which breaks
+ * TLS hostname verification and SNI for every HTTPS host.
+ */
+public final class HostResolver {
+    private static final long MAX_TTL_MS = 30_000;
+    private static final long JVM_CACHE_MARGIN_MS = 5_000;
+    // JDK default for networkaddress.cache.ttl when no security manager is installed
+    private static final long DEFAULT_JVM_TTL_MS = 30_000;
+    private static final int MAX_ENTRIES = 256;
+
+    private static final long TTL_MS = computeTtl();
+    private static final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    private HostResolver() {}
+
+    /**
+     * Throws if {@code host} is missing, unresolvable, or resolves to any private,
+     * loopback, link-local or otherwise internal address.
+     */
+    public static void check(String host) throws Exception {
+        if (host == null) {
+            throw new FetchException("URL has no host", true);
+        }
+        String key = host.toLowerCase(Locale.ROOT);
+        long now = System.currentTimeMillis();
+
+        Entry entry = cache.get(key);
+        if (entry == null || now >= entry.expiresAt) {
+            entry = new Entry(vet(key), now + TTL_MS);
+            if (TTL_MS > 0) {
+                if (cache.size() >= MAX_ENTRIES) {
+                    cache.values().removeIf(e -> now >= e.expiresAt);
+                    if (cache.size() >= MAX_ENTRIES) cache.clear();
+                }
+                cache.put(key, entry);
+            }
+        }
+        if (entry.blockedReason != null) {
+            throw new FetchException(entry.blockedReason, true);
+        }
+    }
+
+    /**
+     * Returns null if every address is public, otherwise the reason the host is blocked.
+     */
+    private static String vet(String host) throws UnknownHostException {
+        InetAddress[] addresses = InetAddress.getAllByName(host);
+        for (InetAddress address : addresses) {
+            if (isInternal(address)) {
+                return "Blocked address";
+            }
+        }
+        return null;
+    }
+
+    private static boolean isInternal(InetAddress address) {
+        if (address.isLoopbackAddress() || address.isSiteLocalAddress() || address.isLinkLocalAddress()
+                || address.isAnyLocalAddress() || address.isMulticastAddress()) {
+            return true;
+        }
+        byte[] raw = address.getAddress();
+        if (address instanceof Inet6Address) {
+            // Unique local fc00::/7 (isSiteLocalAddress only covers the deprecated fec0::/10)
+            return (raw[0] & 0xFE) == 0xFC;
+        }
+        // Carrier-grade NAT 100.64.0.0/10
+        return (raw[0] & 0xFF) == 100 && (raw[1] & 0xC0) == 64;
+    }
+
+    private static long computeTtl() {
+        long jvmTtlMs = DEFAULT_JVM_TTL_MS;
+        String property = Security.getProperty("networkaddress.cache.ttl");
+        if (property != null) {
+            try {
+                long seconds = Long.parseLong(property.trim());
+                // Negative means cache forever
+                jvmTtlMs = seconds < 0 ? Long.MAX_VALUE : seconds * 1000L;
+            } catch (NumberFormatException ignored) {}
+        }
+        if (jvmTtlMs == Long.MAX_VALUE) return MAX_TTL_MS;
+        return Math.max(0, Math.min(MAX_TTL_MS, jvmTtlMs - JVM_CACHE_MARGIN_MS));
+    }
+
+    private record Entry(String blockedReason, long expiresAt) {}
+}
@@ -0,0 +1,416 @@
+package dev.cursedatom.cursedaddons.features.images;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Shared HTTP fetch service used by {@link ImageCache} and {@link UrlResolver}.
+ * A single {@link HttpClient} keeps connections alive between requests and multiplexes
+ * requests to the same host over HTTP/2 where the server supports it, so repeated
+ * images from one CDN reuse a single TLS session.
+ *
+ * Redirects are followed manually so the {@link HostResolver} SSRF check runs on every hop before connecting.
+ * Bodies are streamed and wrapped in {@link BoundedInputStream} when a size cap is set; requests
+ * that opt in to gzip are decompressed transparently, with the cap applying to decompressed bytes.
+ *
+ * A body that stalls for {@code READ_TIMEOUT_MS}, or is still arriving after
+ * {@code BODY_DEADLINE_MS}, fails with a read timeout, see {@link WatchdogInputStream}.
+ *
+ * Every hop waits for a {@link HostLimiter} permit, held until the response body is closed.
+ * A 429/503 is reported back to the limiter and retried once if the server asks for a short wait.
+ */
+public final class HttpFetcher {
+    private static final int CONNECT_TIMEOUT_MS = 5_000;
+    // HttpRequest.timeout only covers the headers; these bound the body
+    private static final int READ_TIMEOUT_MS = 10_000;
+    private static final int BODY_DEADLINE_MS = 60_000;
+    private static final int MAX_REDIRECTS = 5;
+    private static final long MAX_RETRY_AFTER_MS = 10_000;
+    private static final String USER_AGENT = "Mozilla/5.0 (compatible; ImagePreview/1.0)";
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_2)
+        .followRedirects(HttpClient.Redirect.NEVER)
+        .connectTimeout(Duration.ofMillis(CONNECT_TIMEOUT_MS))
+        .executor(ImageExecutors.io())
+        .build();
+
+    private HttpFetcher() {}
+
+    /**
+     * Sends the request asynchronously, following up to {@code MAX_REDIRECTS} redirects.
+     * The returned response is either 200 with a body or 304 (conditional requests only);
+     * any other status completes the future exceptionally. Cancelling the returned future
+     * closes a response that arrives afterwards.
+     */
+    public static CompletableFuture<Response> fetchAsync(Request request) {
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        try {
+            send(request, new URI(request.url()), 0, false).whenComplete((response, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else if (!result.complete(response)) {
+                    response.close();
+                }
+            });
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Blocking form of {@link #fetchAsync} for callers already on a worker thread.
+     */
+    public static Response fetch(Request request) throws Exception {
+        return await(fetchAsync(request));
+    }
+
+    /**
+     * Waits for a pending fetch, rethrowing its failure cause.
+     */
+    public static Response await(CompletableFuture<Response> pending) throws Exception {
+        try {
+            return pending.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static CompletableFuture<Response> send(Request request, URI uri, int redirectCount, boolean retried) throws Exception {
+        String scheme = uri.getScheme();
+        if (!"http".equals(scheme) && !"https".equals(scheme)) {
+            throw new FetchException("Redirect to non-HTTP scheme blocked: " + scheme, true);
+        }
+
+        // SSRF check BEFORE connecting (re-checked on every redirect target)
+        HostResolver.check(uri.getHost());
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+            .GET()
+            .timeout(request.timeout())
+            .header("Accept", request.accept())
+            .header("User-Agent", USER_AGENT);
+        if (request.conditional() != null) {
+            request.conditional().applyConditionalHeaders(builder::header);
+        }
+        if (request.gzip()) {
+            builder.header("Accept-Encoding", "gzip");
+        }
+
+        HttpRequest httpRequest = builder.build();
+        return HostLimiter.acquire(uri.getHost()).thenCompose(permit ->
+            CLIENT.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofInputStream())
+                .whenComplete((response, error) -> {
+                    if (error != null) permit.release();
+                })
+                .thenCompose(response -> {
+                    InputStream body = new WatchdogInputStream(new PermitInputStream(response.body(), permit));
+                    try {
+                        return handleResponse(request, uri, redirectCount, retried, response, body);
+                    } catch (Exception e) {
+                        closeQuietly(body);
+                        return CompletableFuture.failedFuture(e);
+                    }
+                }));
+    }
+
+    private static CompletableFuture<Response> handleResponse(Request request, URI uri, int redirectCount, boolean retried,
+                                                              HttpResponse<InputStream> response, InputStream body) throws Exception {
+        int status = response.statusCode();
+        HttpHeaders headers = response.headers();
+
+        if (status == 429 || status == 503) {
+            closeQuietly(body);
+            long retryAfterMs = parseRetryAfter(headers.firstValue("Retry-After").orElse(null));
+            HostLimiter.reportThrottled(uri.getHost(), retryAfterMs);
+            if (!retried && retryAfterMs <= MAX_RETRY_AFTER_MS) {
+                // The limiter holds this host back until Retry-After has passed
+                return send(request, uri, redirectCount, true);
+            }
+            throw FetchException.forStatus(status);
+        }
+        HostLimiter.reportSuccess(uri.getHost());
+
+        if (status == 304 && request.conditional() != null) {
+            closeQuietly(body);
+            return CompletableFuture.completedFuture(new Response(uri, headers, null));
+        }
+
+        if (status >= 300 && status < 400) {
+            closeQuietly(body);
+            String location = headers.firstValue("Location").orElse(null);
+            if (location == null) {
+                throw new FetchException("Redirect with no Location header", true);
+            }
+            if (redirectCount >= MAX_REDIRECTS) {
+                throw new FetchException("Too many redirects", true);
+            }
+            // Resolve relative Location URLs against the current URI
+            return send(request, uri.resolve(location), redirectCount + 1, retried);
+        }
+
+        if (status != 200) {
+            throw FetchException.forStatus(status);
+        }
+
+        if (request.gzip() && "gzip".equalsIgnoreCase(headers.firstValue("Content-Encoding").orElse(""))) {
+            body = new GZIPInputStream(body);
+        }
+
+        long maxBytes = request.maxBytes();
+        if (maxBytes > 0) {
+            long contentLength = headers.firstValueAsLong("Content-Length").orElse(-1);
+            if (contentLength > maxBytes) {
+                throw new FetchException("File too large (" + (contentLength / 1024 / 1024) + "MB / " + (maxBytes / 1024 / 1024) + "MB max)", true);
+            }
+            body = new BoundedInputStream(body, maxBytes);
+        }
+        return CompletableFuture.completedFuture(new Response(uri, headers, body));
+    }
+
+    /**
+     * Lower-cased host of a URL, or an empty string if it has none or does not parse.
+     */
+    static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : "";
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Parses {@code Retry-After} as delay-seconds or an HTTP date. Returns -1 if absent or malformed.
+     */
+    private static long parseRetryAfter(String value) {
+        if (value == null) return -1;
+        try {
+            return Math.max(0, Long.parseLong(value.trim())) * 1000L;
+        } catch (NumberFormatException e) {
+            Long date = CacheValidators.parseHttpDate(value);
+            return date != null ? Math.max(0, date - System.currentTimeMillis()) : -1;
+        }
+    }
+
+    private static Exception unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t instanceof Exception ? (Exception) t : new Exception(t);
+    }
+
+    private static void closeQuietly(InputStream stream) {
+        if (stream == null) return;
+        try {
+            stream.close();
+        } catch (IOException ignored) {}
+    }
+
+    /**
+     * A GET request.
+     *
+     * @param accept      value of the {@code Accept} header
+     * @param conditional validators to revalidate with, or null for an unconditional GET
+     * @param maxBytes    body size cap enforced via Content-Length and {@link BoundedInputStream}; 0 disables it
+     * @param timeout     time allowed until response headers arrive
+     * @param gzip        whether to accept a gzip-encoded body; worthwhile for text, not for images
+     */
+    public record Request(String url, String accept, CacheValidators conditional, long maxBytes, Duration timeout, boolean gzip) {
+        public static Request get(String url, String accept, Duration timeout) {
+            return new Request(url, accept, null, 0, timeout, false);
+        }
+
+        public Request withConditional(CacheValidators validators) {
+            return new Request(url, accept, validators, maxBytes, timeout, gzip);
+        }
+
+        public Request withMaxBytes(long limit) {
+            return new Request(url, accept, conditional, limit, timeout, gzip);
+        }
+
+        public Request withGzip() {
+            return new Request(url, accept, conditional, maxBytes, timeout, true);
+        }
+    }
+
+    /**
+     * A successful response. {@code body} is null for a 304; otherwise the caller must close it.
+     * Closing the body early aborts the transfer.
+     */
+    public record Response(URI uri, HttpHeaders headers, InputStream body) implements Closeable {
+        public boolean isNotModified() {
+            return body == null;
+        }
+
+        public String header(String name) {
+            return headers.firstValue(name).orElse(null);
+        }
+
+        public CacheValidators validators() {
+            return CacheValidators.fromHeaders(this::header);
+        }
+
+        @Override
+        public void close() {
+            closeQuietly(body);
+        }
+    }
+
+    /**
+     * Response body that returns its {@link HostLimiter.Permit} when closed.
+     */
+    private static class PermitInputStream extends FilterInputStream {
+        private final HostLimiter.Permit permit;
+
+        PermitInputStream(InputStream delegate, HostLimiter.Permit permit) {
+            super(delegate);
+            this.permit = permit;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                permit.release();
+            }
+        }
+    }
+
+    /**
+     * Response body with a read timeout. A watchdog closes the stream (returning its permit and
+     * unblocking a read in progress) once no bytes have arrived for {@code READ_TIMEOUT_MS} or
+     * the body has been open for {@code BODY_DEADLINE_MS}; the reader then gets a
+     * {@link SocketTimeoutException} rather than a short body.
+     */
+    private static class WatchdogInputStream extends FilterInputStream {
+        private final long deadline;
+        private volatile long lastProgress;
+        private volatile boolean closed;
+        private volatile String expired;
+
+        WatchdogInputStream(InputStream delegate) {
+            super(delegate);
+            long now = System.currentTimeMillis();
+            this.lastProgress = now;
+            this.deadline = now + BODY_DEADLINE_MS;
+            scheduleCheck(READ_TIMEOUT_MS);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b;
+            try {
+                b = super.read();
+            } catch (IOException e) {
+                throw timeoutOr(e);
+            }
+            progress(b >= 0 ? 1 : -1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            int n;
+            try {
+                n = super.read(buf, off, len);
+            } catch (IOException e) {
+                throw timeoutOr(e);
+            }
+            progress(n);
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+
+        private void progress(int count) throws IOException {
+            // A watchdog close can surface as end of stream; never mistake it for a complete body
+            if (expired != null) throw new SocketTimeoutException(expired);
+            if (count > 0) lastProgress = System.currentTimeMillis();
+        }
+
+        private IOException timeoutOr(IOException e) {
+            return expired != null ? new SocketTimeoutException(expired) : e;
+        }
+
+        private void scheduleCheck(long delayMs) {
+            CompletableFuture.runAsync(this::check,
+                CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS, ImageExecutors.io()));
+        }
+
+        private void check() {
+            if (closed) return;
+            long now = System.currentTimeMillis();
+            long idleLeft = lastProgress + READ_TIMEOUT_MS - now;
+            long totalLeft = deadline - now;
+            if (idleLeft > 0 && totalLeft > 0) {
+                scheduleCheck(Math.min(idleLeft, totalLeft));
+                return;
+            }
+            expired = idleLeft <= 0 ? "Read timed out" : "Download took too long";
+            closeQuietly(this);
+        }
+    }
+
+    /**
+     * InputStream wrapper that enforces a maximum number of bytes read.
+     */
+    static class BoundedInputStream extends InputStream {
+        private final InputStream delegate;
+        private final long maxBytes;
+        private long bytesRead;
+
+        BoundedInputStream(InputStream delegate, long maxBytes) {
+            this.delegate = delegate;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (bytesRead >= maxBytes) {
+                throw new IOException("File too large (exceeded " + (maxBytes / 1024 / 1024) + "MB limit)");
+            }
+            int b = delegate.read();
+            if (b >= 0) bytesRead++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            if (bytesRead >= maxBytes) {
+                throw new IOException("File too large (exceeded " + (maxBytes / 1024 / 1024) + "MB limit)");
+            }
+            long remaining = maxBytes - bytesRead;
+            int toRead = (int) Math.min(len, remaining);
+            int n = delegate.read(buf, off, toRead);
+            if (n > 0) bytesRead += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
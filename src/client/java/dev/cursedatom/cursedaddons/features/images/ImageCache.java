@@ -8,28 +8,40 @@ import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.InetAddress;
-import java.net.URI;
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Asynchronously fetches and caches images (static and GIF) from whitelisted URLs.
- * Applies SSRF protection, file-size limiting, and LRU eviction up to {@code MAX_CACHE_SIZE} entries.
+ * Downloads go through {@link HttpFetcher} (SSRF protection, file-size limiting); decoded
+ * results are kept with LRU eviction up to {@code MAX_CACHE_SIZE} entries.
+ * Downloaded bytes are persisted in {@link ImageDiskCache} so evicted or previous-session images skip the network.
+ *
+ * Downloading and source decoding are shared per URL: previews of the same image at different
+ * sizes (normal vs. Shift-held, or after a window resize) wait on one {@link ImageDecoder.Decoded} and
+ * only the final resample runs per size. Recent sources are kept in {@code sourceCache} up to
+ * {@code MAX_SOURCE_CACHE_BYTES}; once no size of a source is still rendering it drops its
+ * full-resolution pixels and keeps only the encoded bytes.
+ * The decoder is picked by {@link ImageDecoders} from the downloaded bytes, not the URL.
  */
 public class ImageCache {
     private ImageCache() {}
-    private static final int MAX_CACHE_SIZE = 10;
-    private static final int CONNECT_TIMEOUT_MS = 5_000;
+    static final int MAX_CACHE_SIZE = 10;
+    private static final long MAX_SOURCE_CACHE_BYTES = 64L * 1024 * 1024;
+    private static final int MAX_FAILURE_ENTRIES = 512;
+    private static final long RETRY_DELAY_MS = 30_000;
     private static final int READ_TIMEOUT_MS = 10_000;
     private static final int DEFAULT_MAX_FILE_SIZE_MB = 30;
 
-    private static int getMaxContentLength() {
+    static int getMaxContentLength() {
         Object value = ConfigProvider.get(ConfigKeys.IMAGE_MAX_FILE_SIZE_MB);
         int mb = (value instanceof Number) ? ((Number) value).intValue() : DEFAULT_MAX_FILE_SIZE_MB;
         return Math.max(mb, 1) * 1024 * 1024;
@@ -48,19 +60,33 @@ public class ImageCache {
         }
     };
 
+    // Decoded sources by URL in access order, trimmed by retained bytes; guarded by cacheLock
+    private static final Map<String, ImageDecoder.Decoded> sourceCache = new LinkedHashMap<>(16, 0.75f, true);
+    // Renders queued or running per source; guarded by cacheLock
+    private static final Map<String, Integer> pendingRenders = new HashMap<>();
+
     private static final Map<String, CompletableFuture<ImageResult>> loadingTasks = new ConcurrentHashMap<>();
-    private static final Map<String, FailureEntry> failedUrls = new ConcurrentHashMap<>();
-    private static final long RETRY_DELAY_MS = 30_000;
+    private static final Map<String, SourceTask> sourceTasks = new HashMap<>();
+    private static final FailureCache failures = new FailureCache(MAX_FAILURE_ENTRIES, RETRY_DELAY_MS);
 
     public static CompletableFuture<ImageResult> loadImage(String url, int maxWidth, int maxHeight) {
+        return loadImage(url, maxWidth, maxHeight, ImageJobScheduler.Priority.HOVER);
+    }
+
+    /**
+     * Loads an image at the given priority. Hover loads are cancelled by {@link ImageJobScheduler}
+     * once the user stops hovering; a cancelled load completes exceptionally with a
+     * {@link CancellationException} and is not recorded as a failure.
+     */
+    public static CompletableFuture<ImageResult> loadImage(String url, int maxWidth, int maxHeight,
+                                                           ImageJobScheduler.Priority priority) {
+        // Variants of one image (rotating signatures, host case, tracking parameters) share
+        // every cache and in-flight load; the original URL is still the one requested
+        String sourceKey = UrlCanonicalizer.canonicalize(url);
         String cacheKey = getCacheKey(url, maxWidth, maxHeight);
 
-        FailureEntry failure = failedUrls.get(cacheKey);
-        if (failure != null) {
-            if (System.currentTimeMillis() - failure.timestamp < RETRY_DELAY_MS) {
-                return CompletableFuture.completedFuture(null);
-            }
-            failedUrls.remove(cacheKey);
+        if (failures.getBlockedReason(sourceKey) != null) {
+            return CompletableFuture.completedFuture(null);
         }
 
         synchronized (cacheLock) {
@@ -72,141 +98,260 @@ public class ImageCache {
 
         return loadingTasks.computeIfAbsent(cacheKey, key -> {
             CompletableFuture<ImageResult> future = new CompletableFuture<>();
-            CompletableFuture.runAsync(() -> {
-                try {
-                    // Resolve embed URLs (e.g. imgur.com/abc -> i.imgur.com/abc.jpg)
-                    String loadUrl = url;
-                    if (ImageHoverPreview.isEmbedResolutionEnabledForUrl(url) && ImageHoverPreview.needsResolution(url)) {
-                        String resolved = UrlResolver.resolve(url);
-                        if (resolved == null) {
-                            throw new Exception("Failed to resolve embed URL");
-                        }
-                        if (!ImageHoverPreview.isWhitelisted(resolved)) {
-                            throw new Exception("Domain not whitelisted");
+            synchronized (cacheLock) {
+                pendingRenders.merge(sourceKey, 1, Integer::sum);
+            }
+            loadSource(url, sourceKey, cacheKey, priority)
+                .thenApplyAsync(source -> resample(source, maxWidth, maxHeight, cacheKey), ImageExecutors.decode())
+                .whenComplete((result, error) -> {
+                    try {
+                        if (error == null) {
+                            synchronized (cacheLock) {
+                                cache.put(cacheKey, new CacheEntry(result));
+                            }
+                            failures.recordSuccess(sourceKey);
+                            future.complete(result);
+                        } else {
+                            Throwable cause = unwrap(error);
+                            if (!(cause instanceof CancellationException)) {
+                                CursedAddons.LOGGER.error("[ImageHoverPreview] Failed to load image from " + url + ": " + cause.getMessage());
+                                failures.recordFailure(sourceKey, cause);
+                            }
+                            future.completeExceptionally(cause);
                         }
-                        loadUrl = resolved;
+                    } finally {
+                        loadingTasks.remove(cacheKey);
+                        renderFinished(sourceKey);
                     }
-
-                    ImageResult result;
-                    if (isGifUrl(loadUrl)) {
-                        result = loadGif(loadUrl, maxWidth, maxHeight);
-                    } else {
-                        result = loadStatic(loadUrl, maxWidth, maxHeight);
-                    }
-                    synchronized (cacheLock) {
-                        cache.put(cacheKey, new CacheEntry(result));
-                    }
-                    future.complete(result);
-                } catch (Exception e) {
-                    CursedAddons.LOGGER.error("[ImageHoverPreview] Failed to load image from " + url + ": " + e.getMessage());
-                    failedUrls.put(cacheKey, new FailureEntry(System.currentTimeMillis(), e.getMessage()));
-                    future.completeExceptionally(e);
-                } finally {
-                    loadingTasks.remove(cacheKey);
-                }
-            });
+                });
             return future;
         });
     }
 
     /**
-     * Returns the failure reason for a cached failed URL, or null if not failed.
+     * Downloads a URL into {@link ImageDiskCache} and {@code sourceCache} without producing a
+     * preview, so background loads never enter the preview LRU or evict hovered textures. A
+     * later hover at {@code maxWidth} x {@code maxHeight} joins the load if it is still running.
      */
-    public static String getFailureReason(String url, int maxWidth, int maxHeight) {
-        String cacheKey = getCacheKey(url, maxWidth, maxHeight);
-        FailureEntry failure = failedUrls.get(cacheKey);
-        if (failure != null && System.currentTimeMillis() - failure.timestamp < RETRY_DELAY_MS) {
-            return failure.reason;
+    public static CompletableFuture<Void> prefetch(String url, int maxWidth, int maxHeight) {
+        String sourceKey = UrlCanonicalizer.canonicalize(url);
+        if (failures.getBlockedReason(sourceKey) != null) {
+            return CompletableFuture.completedFuture(null);
         }
-        return null;
-    }
-
-    // Cache keys follow the pattern "url@WxH" to separate entries for different display sizes.
-    static String getCacheKey(String url, int maxWidth, int maxHeight) {
-        return url + "@" + maxWidth + "x" + maxHeight;
+        return loadSource(url, sourceKey, getCacheKey(url, maxWidth, maxHeight), ImageJobScheduler.Priority.PREFETCH)
+            .handle((source, error) -> {
+                if (error == null) {
+                    failures.recordSuccess(sourceKey);
+                } else if (!(unwrap(error) instanceof CancellationException)) {
+                    failures.recordFailure(sourceKey, unwrap(error));
+                }
+                return null;
+            });
     }
 
-    private static InputStream openConnectionWithTimeouts(String url) throws Exception {
-        final int MAX_REDIRECTS = 5;
-        String currentUrl = url;
-
-        for (int i = 0; i <= MAX_REDIRECTS; i++) {
-            URI uri = new URI(currentUrl);
+    /**
+     * Returns the decoded source for a URL, joining an in-flight load of the same URL
+     * started for another preview size instead of downloading it again.
+     */
+    private static CompletableFuture<ImageDecoder.Decoded> loadSource(String url, String sourceKey, String cacheKey,
+                                                                      ImageJobScheduler.Priority priority) {
+        synchronized (cacheLock) {
+            ImageDecoder.Decoded cached = sourceCache.get(sourceKey);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
 
-            // SSRF check BEFORE connecting (re-checked on every redirect target)
-            InetAddress address = InetAddress.getByName(uri.toURL().getHost());
-            if (address.isLoopbackAddress() || address.isSiteLocalAddress() || address.isLinkLocalAddress()) {
-                throw new Exception("Blocked address");
+        synchronized (sourceTasks) {
+            SourceTask existing = sourceTasks.get(sourceKey);
+            if (existing != null && !existing.job.isCancelled()) {
+                ImageJobScheduler.join(existing.job, cacheKey, priority);
+                return existing.future;
             }
 
-            HttpURLConnection connection = null;
-            try {
-                connection = (HttpURLConnection) uri.toURL().openConnection();
-                connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
-                connection.setReadTimeout(READ_TIMEOUT_MS);
-                connection.setInstanceFollowRedirects(false);
-                connection.setRequestProperty("Accept", "image/*");
-                connection.connect();
-
-                int responseCode = connection.getResponseCode();
-
-                if (responseCode >= 300 && responseCode < 400) {
-                    String location = connection.getHeaderField("Location");
-                    connection.disconnect();
-                    connection = null;
-                    if (location == null) {
-                        throw new Exception("Redirect with no Location header");
-                    }
-                    if (i == MAX_REDIRECTS) {
-                        throw new Exception("Too many redirects");
+            ImageJobScheduler.Job job = ImageJobScheduler.newJob(url, cacheKey, priority);
+            // Network waits run on virtual threads once admitted; decoding on the bounded decode pool
+            CompletableFuture<ImageDecoder.Decoded> future = ImageJobScheduler.schedule(job, () -> fetchSource(url, job))
+                .thenApplyAsync(data -> decodeSource(data, job), ImageExecutors.decode());
+            SourceTask task = new SourceTask(job, future);
+            sourceTasks.put(sourceKey, task);
+            future.whenComplete((source, error) -> {
+                ImageJobScheduler.finish(job);
+                if (source != null) {
+                    boolean idle;
+                    synchronized (cacheLock) {
+                        sourceCache.put(sourceKey, source);
+                        trimSourceCache();
+                        // Every size may already have rendered from the future itself
+                        idle = !pendingRenders.containsKey(sourceKey);
                     }
-                    // Resolve relative Location URLs against the current URI
-                    currentUrl = uri.resolve(location).toString();
-                    continue;
+                    if (idle) source.release();
                 }
-
-                if (responseCode != 200) {
-                    throw new Exception("HTTP " + responseCode);
+                synchronized (sourceTasks) {
+                    sourceTasks.remove(sourceKey, task);
                 }
+            });
+            return future;
+        }
+    }
 
-                int contentLength = connection.getContentLength();
-                if (contentLength > getMaxContentLength()) {
-                    throw new Exception("File too large (" + (contentLength / 1024 / 1024) + "MB / " + (getMaxContentLength() / 1024 / 1024) + "MB max)");
+    private static void renderFinished(String sourceKey) {
+        ImageDecoder.Decoded idle;
+        synchronized (cacheLock) {
+            int remaining = pendingRenders.merge(sourceKey, -1, Integer::sum);
+            if (remaining > 0) return;
+            pendingRenders.remove(sourceKey);
+            idle = sourceCache.get(sourceKey);
+        }
+        // Outside the lock: release waits for a render still holding the source's own lock
+        if (idle != null) idle.release();
+    }
+
+    // Evicts least recently used sources until the rest fit in MAX_SOURCE_CACHE_BYTES
+    private static void trimSourceCache() {
+        long total = 0;
+        for (ImageDecoder.Decoded source : sourceCache.values()) {
+            total += source.retainedBytes();
+        }
+        Iterator<ImageDecoder.Decoded> iterator = sourceCache.values().iterator();
+        while (total > MAX_SOURCE_CACHE_BYTES && iterator.hasNext()) {
+            total -= iterator.next().retainedBytes();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Resolves embed URLs if needed and downloads (or reads from disk) the image bytes.
+     * Blocking — runs on {@link ImageExecutors#io()}.
+     */
+    private static byte[] fetchSource(String url, ImageJobScheduler.Job job) throws Exception {
+        // Resolve embed URLs (e.g. imgur.com/abc -> i.imgur.com/abc.jpg)
+        String loadUrl = url;
+        if (ImageHoverPreview.isEmbedResolutionEnabledForUrl(url) && ImageHoverPreview.needsResolution(url)) {
+            UrlResolver.Resolution resolution = UrlResolver.resolve(url, job);
+            if (ImageHoverPreview.isWhitelisted(resolution.url())) {
+                if (resolution.imageData() != null) {
+                    // The link served the image itself while being resolved; no second request needed
+                    ImageDiskCache.put(resolution.url(), resolution.imageData(), resolution.validators());
+                    return resolution.imageData();
                 }
+                loadUrl = resolution.url();
+            } else if (!ImageHoverPreview.IMAGE_PATTERN.matcher(url).find()) {
+                throw new FetchException("Domain not whitelisted", true);
+            }
+            // else: a direct link rewritten to a host outside the whitelist loads as posted
+        }
+        job.throwIfCancelled();
+        return fetchBytes(loadUrl, job);
+    }
 
-                return new BoundedInputStream(connection.getInputStream(), getMaxContentLength());
-            } catch (Exception e) {
-                if (connection != null) connection.disconnect();
-                throw e;
+    /**
+     * Sniffs the downloaded bytes and runs the size-independent decode of the matching
+     * {@link ImageDecoder}. CPU-bound — runs on {@link ImageExecutors#decode()}.
+     */
+    private static ImageDecoder.Decoded decodeSource(byte[] data, ImageJobScheduler.Job job) {
+        job.throwIfCancelled();
+        try {
+            // Disk-cached bytes skipped the streaming probe; enforce the pixel budget before decoding
+            ImageProbe.Info info = ImageProbe.check(data);
+            if (job.getPriority() != ImageJobScheduler.Priority.HOVER && info != null && info.hasDimensions()
+                    && !ImagePrefetcher.tryReservePixels(info.pixels())) {
+                // Not a failure: the bytes are on disk and a hover decodes them normally
+                throw new CancellationException("Background decode budget exhausted");
             }
+            return ImageDecoders.find(data).decode(data);
+        } catch (Exception e) {
+            throw new CompletionException(e);
         }
-        throw new Exception("Too many redirects");
     }
 
-    private static ImageResult loadStatic(String url, int maxWidth, int maxHeight) throws Exception {
-        BufferedImage image;
-        try (InputStream stream = openConnectionWithTimeouts(url)) {
-            image = ImageIO.read(stream);
+    /**
+     * Produces the preview for one size from a shared source. CPU-bound — runs on {@link ImageExecutors#decode()}.
+     */
+    private static ImageResult resample(ImageDecoder.Decoded source, int maxWidth, int maxHeight, String cacheKey) {
+        if (ImageJobScheduler.isAbandoned(cacheKey)) {
+            throw new CancellationException("Image load cancelled");
         }
-        if (image == null) {
-            throw new Exception("Failed to read image");
+        try {
+            return source.render(maxWidth, maxHeight, () -> ImageJobScheduler.isAbandoned(cacheKey));
+        } catch (Exception e) {
+            throw new CompletionException(e);
         }
+    }
 
-        BufferedImage processedImage = scaleIfNeeded(image, maxWidth, maxHeight);
-        int width = processedImage.getWidth();
-        int height = processedImage.getHeight();
+    private static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
 
-        int[] argbPixels = processedImage.getRGB(0, 0, width, height, null, 0, width);
+    /**
+     * Returns why this URL (or its host) is currently backing off after a failure, or null if it may be loaded.
+     * Failures are tracked per URL, not per preview size.
+     */
+    public static String getFailureReason(String url) {
+        return failures.getBlockedReason(UrlCanonicalizer.canonicalize(url));
+    }
+
+    static String getCacheKey(String url, int maxWidth, int maxHeight) {
+        return ImageTextureManager.getCacheKey(url, maxWidth, maxHeight);
+    }
 
-        if (processedImage != image) {
-            processedImage.flush();
+    /**
+     * Returns the raw bytes for a direct image URL. Fresh {@link ImageDiskCache} entries are
+     * used as-is; stale ones are revalidated with a conditional GET so an unchanged image
+     * costs a 304 instead of a full download.
+     */
+    private static byte[] fetchBytes(String url, ImageJobScheduler.Job job) throws Exception {
+        ImageDiskCache.Entry cached = ImageDiskCache.get(url);
+        if (cached != null && cached.isFresh()) {
+            return cached.data();
         }
-        image.flush();
 
-        return ImageResult.ofStaticRaw(argbPixels, width, height);
+        CacheValidators conditional = (cached != null && cached.validators().canRevalidate()) ? cached.validators() : null;
+        HttpFetcher.Request request = HttpFetcher.Request.get(url, "image/*", Duration.ofMillis(READ_TIMEOUT_MS))
+            .withConditional(conditional)
+            .withMaxBytes(getMaxContentLength());
+        byte[] data;
+        CacheValidators validators;
+        CompletableFuture<HttpFetcher.Response> pending = HttpFetcher.fetchAsync(request);
+        Closeable abortRequest = () -> pending.cancel(true);
+        job.register(abortRequest);
+        try (HttpFetcher.Response response = HttpFetcher.await(pending)) {
+            job.unregister(abortRequest);
+            // Cancelling the job closes the body, aborting the transfer mid-read
+            job.register(response);
+            try {
+                validators = response.validators();
+                if (response.isNotModified()) {
+                    // Only a conditional request can be answered with a 304
+                    if (conditional == null) {
+                        throw new FetchException("Unexpected HTTP 304", false);
+                    }
+                    ImageDiskCache.refresh(url, validators);
+                    return cached.data();
+                }
+                // Rejects images over the pixel budget from their header, before the rest is downloaded
+                data = ImageProbe.readChecked(response.body());
+            } finally {
+                job.unregister(response);
+            }
+            if (job.getPriority() != ImageJobScheduler.Priority.HOVER) {
+                ImagePrefetcher.recordBytes(data.length);
+            }
+        } catch (Exception e) {
+            job.unregister(abortRequest);
+            job.throwIfCancelled();
+            // Revalidation failed (e.g. host unreachable): a stale image beats an error tooltip
+            if (cached != null) return cached.data();
+            throw e;
+        }
+        ImageDiskCache.put(url, data, validators);
+        return data;
     }
 
-    private static BufferedImage scaleIfNeeded(BufferedImage image, int maxWidth, int maxHeight) {
+    static BufferedImage scaleIfNeeded(BufferedImage image, int maxWidth, int maxHeight) {
         int width = image.getWidth();
         int height = image.getHeight();
 
@@ -268,26 +413,6 @@ public class ImageCache {
         return current;
     }
 
-    private static ImageResult loadGif(String url, int maxWidth, int maxHeight) throws Exception {
-        try (InputStream stream = openConnectionWithTimeouts(url)) {
-            GifDecoder.GifData gifData = GifDecoder.decode(stream, maxWidth, maxHeight);
-
-            List<byte[]> encodedFrames = gifData.getEncodedFrames();
-            if (encodedFrames.isEmpty()) {
-                throw new Exception("GIF has no frames");
-            }
-
-            if (encodedFrames.size() == 1) {
-                return ImageResult.ofStatic(encodedFrames.get(0), gifData.getWidth(), gifData.getHeight());
-            }
-
-            byte[][] framePngData = encodedFrames.toArray(new byte[0][]);
-
-            return ImageResult.ofGif(framePngData, gifData.getDelays(),
-                                     gifData.getWidth(), gifData.getHeight());
-        }
-    }
-
     /**
      * Encodes a BufferedImage to PNG byte array. CPU-intensive — call from async thread.
      */
@@ -297,12 +422,7 @@ public class ImageCache {
         return baos.toByteArray();
     }
 
-    private static boolean isGifUrl(String url) {
-        String lower = url.toLowerCase();
-        int queryIndex = lower.indexOf('?');
-        String path = queryIndex >= 0 ? lower.substring(0, queryIndex) : lower;
-        return path.endsWith(".gif");
-    }
+    private record SourceTask(ImageJobScheduler.Job job, CompletableFuture<ImageDecoder.Decoded> future) {}
 
     private static class CacheEntry {
         final ImageResult result;
@@ -311,55 +431,4 @@ public class ImageCache {
             this.result = result;
         }
     }
-
-    private static class FailureEntry {
-        final long timestamp;
-        final String reason;
-
-        FailureEntry(long timestamp, String reason) {
-            this.timestamp = timestamp;
-            this.reason = reason;
-        }
-    }
-
-    /**
-     * InputStream wrapper that enforces a maximum number of bytes read.
-     */
-    private static class BoundedInputStream extends InputStream {
-        private final InputStream delegate;
-        private final long maxBytes;
-        private long bytesRead;
-
-        BoundedInputStream(InputStream delegate, long maxBytes) {
-            this.delegate = delegate;
-            this.maxBytes = maxBytes;
-        }
-
-        @Override
-        public int read() throws java.io.IOException {
-            if (bytesRead >= maxBytes) {
-                throw new java.io.IOException("File too large (exceeded " + (maxBytes / 1024 / 1024) + "MB limit)");
-            }
-            int b = delegate.read();
-            if (b >= 0) bytesRead++;
-            return b;
-        }
-
-        @Override
-        public int read(byte[] buf, int off, int len) throws java.io.IOException {
-            if (bytesRead >= maxBytes) {
-                throw new java.io.IOException("File too large (exceeded " + (maxBytes / 1024 / 1024) + "MB limit)");
-            }
-            long remaining = maxBytes - bytesRead;
-            int toRead = (int) Math.min(len, remaining);
-            int n = delegate.read(buf, off, toRead);
-            if (n > 0) bytesRead += n;
-            return n;
-        }
-
-        @Override
-        public void close() throws java.io.IOException {
-            delegate.close();
-        }
-    }
 }
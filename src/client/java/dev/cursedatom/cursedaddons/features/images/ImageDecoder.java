@@ -0,0 +1,48 @@
+package dev.cursedatom.cursedaddons.features.images;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Decodes one image format. Decoders are registered with {@link ImageDecoders} and chosen by
+ * sniffing the downloaded bytes, never by URL extension.
+ *
+ * Decoding is split in two stages so {@link ImageCache} can share work across preview sizes:
+ * {@link #decode} runs once per URL, {@link Decoded#render} once per requested size.
+ */
+public interface ImageDecoder {
+    /**
+     * Returns true if {@code data} is in a format this decoder handles. Only the leading
+     * bytes should be inspected; this runs for every registered decoder until one matches.
+     */
+    boolean canDecode(byte[] data);
+
+    /**
+     * Performs the size-independent part of decoding. CPU-bound — runs on {@link ImageExecutors#decode()}.
+     */
+    Decoded decode(byte[] data) throws Exception;
+
+    /**
+     * A decoded source image, shared by every preview size of a URL. Implementations must
+     * allow concurrent {@link #render} calls.
+     */
+    interface Decoded {
+        /**
+         * Produces the preview scaled to fit {@code maxWidth} x {@code maxHeight}. Long-running
+         * renders should poll {@code cancelled} and throw {@link java.util.concurrent.CancellationException}.
+         */
+        ImageResult render(int maxWidth, int maxHeight, BooleanSupplier cancelled) throws Exception;
+
+        /**
+         * Approximate heap held by this source, encoded bytes included. Must not block.
+         */
+        default long retainedBytes() {
+            return 0;
+        }
+
+        /**
+         * Called once no render of this source is pending. Drops anything kept to share work
+         * between sizes; a later {@link #render} rebuilds it from the encoded bytes.
+         */
+        default void release() {}
+    }
+}
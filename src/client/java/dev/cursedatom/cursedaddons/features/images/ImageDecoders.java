@@ -0,0 +1,277 @@
+package dev.cursedatom.cursedaddons.features.images;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Registry of {@link ImageDecoder}s, consulted in registration order. Built in: animated GIF,
+ * then any still format an installed {@link ImageIO} reader recognises (PNG, JPEG, BMP, and
+ * WebP when a plugin provides it). Decoders registered later are tried before the built-ins.
+ */
+public final class ImageDecoders {
+    // How many bytes are shown to ImageIO's format sniffers
+    private static final int SNIFF_BYTES = 64;
+
+    private static final List<ImageDecoder> decoders = new CopyOnWriteArrayList<>(List.of(
+        new GifImageDecoder(),
+        new StillImageDecoder()
+    ));
+
+    private ImageDecoders() {}
+
+    /**
+     * Adds a decoder ahead of those already registered.
+     */
+    public static void register(ImageDecoder decoder) {
+        decoders.add(0, decoder);
+    }
+
+    /**
+     * Returns the first decoder whose sniffer accepts {@code data}.
+     *
+     * @throws Exception naming the detected format if no decoder accepts it
+     */
+    public static ImageDecoder find(byte[] data) throws Exception {
+        for (ImageDecoder decoder : decoders) {
+            if (decoder.canDecode(data)) {
+                return decoder;
+            }
+        }
+        throw new FetchException("Unsupported image format (" + describe(data) + ")", true);
+    }
+
+    private static String describe(byte[] data) {
+        ImageProbe.Info info = ImageProbe.probe(data, data.length);
+        if (info != null) return info.format().name();
+        // ISO base media (MP4/MOV): box size, then "ftyp" — common behind ".gif" links on GIF hosts
+        if (data.length >= 8 && data[4] == 'f' && data[5] == 't' && data[6] == 'y' && data[7] == 'p') return "video";
+        if (data.length >= 4 && (data[0] & 0xFF) == 0x1A && (data[1] & 0xFF) == 0x45
+                && (data[2] & 0xFF) == 0xDF && (data[3] & 0xFF) == 0xA3) return "video";
+        if (data.length > 0 && data[0] == '<') return "HTML page";
+        return "unknown";
+    }
+
+    /**
+     * GIFs are parsed and composited once per source at full size; each preview size then only
+     * scales and encodes the shared frames. An animation whose full-size frames would take more
+     * than {@code SHARED_FRAMES_MAX_BYTES} is not kept: every size decodes the stream again.
+     */
+    private static class GifImageDecoder implements ImageDecoder {
+        private static final long SHARED_FRAMES_MAX_BYTES = 64L * 1024 * 1024;
+
+        @Override
+        public boolean canDecode(byte[] data) {
+            ImageProbe.Info info = ImageProbe.probe(data, Math.min(data.length, SNIFF_BYTES));
+            return info != null && info.format() == ImageProbe.Format.GIF;
+        }
+
+        @Override
+        public Decoded decode(byte[] data) {
+            return new GifSource(data);
+        }
+
+        private static final class GifSource implements Decoded {
+            private final byte[] data;
+            private volatile GifDecoder.Frames frames;
+            private boolean tooLarge;
+
+            GifSource(byte[] data) {
+                this.data = data;
+            }
+
+            @Override
+            public ImageResult render(int maxWidth, int maxHeight, BooleanSupplier cancelled) throws Exception {
+                GifDecoder.Frames shared = frames(cancelled);
+                GifDecoder.GifData gifData = shared != null
+                    ? GifDecoder.encode(shared, maxWidth, maxHeight, cancelled)
+                    : GifDecoder.decode(new ByteArrayInputStream(data), maxWidth, maxHeight, cancelled);
+
+                List<byte[]> encodedFrames = gifData.getEncodedFrames();
+                if (encodedFrames.isEmpty()) {
+                    throw new Exception("GIF has no frames");
+                }
+
+                if (encodedFrames.size() == 1) {
+                    return ImageResult.ofStatic(encodedFrames.get(0), gifData.getWidth(), gifData.getHeight());
+                }
+
+                byte[][] framePngData = encodedFrames.toArray(new byte[0][]);
+
+                return ImageResult.ofGif(framePngData, gifData.getDelays(),
+                                         gifData.getWidth(), gifData.getHeight());
+            }
+
+            // Composited on first use; later sizes wait for it rather than compositing again
+            private synchronized GifDecoder.Frames frames(BooleanSupplier cancelled) throws Exception {
+                GifDecoder.Frames shared = frames;
+                if (shared == null && !tooLarge) {
+                    shared = GifDecoder.composite(new ByteArrayInputStream(data), cancelled, SHARED_FRAMES_MAX_BYTES);
+                    frames = shared;
+                    tooLarge = shared == null;
+                }
+                return shared;
+            }
+
+            @Override
+            public long retainedBytes() {
+                GifDecoder.Frames shared = frames;
+                return data.length + (shared == null ? 0 : (long) shared.pixels().size() * shared.width() * shared.height() * 4);
+            }
+
+            @Override
+            public synchronized void release() {
+                frames = null;
+            }
+        }
+    }
+
+    /**
+     * Keeps the encoded bytes and reads the pixel size from the header. Each size is decoded
+     * through an {@link ImageReader} with source subsampling chosen from the target, so a
+     * large photo shown in a small tooltip never exists at full resolution: only the last
+     * factor of two (or less) is left to the smooth downscale. Images that need no subsampling
+     * are decoded once at full size and shared by every preview size.
+     */
+    private static class StillImageDecoder implements ImageDecoder {
+        @Override
+        public boolean canDecode(byte[] data) {
+            try (ImageInputStream stream = ImageIO.createImageInputStream(
+                    new ByteArrayInputStream(data, 0, Math.min(data.length, SNIFF_BYTES)))) {
+                return stream != null && ImageIO.getImageReaders(stream).hasNext();
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        @Override
+        public Decoded decode(byte[] data) throws Exception {
+            int[] size = readSize(data);
+            return new StillSource(data, size[0], size[1]);
+        }
+
+        private static int[] readSize(byte[] data) throws Exception {
+            try (ImageInputStream stream = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+                ImageReader reader = readerFor(stream);
+                try {
+                    reader.setInput(stream, true, true);
+                    return new int[]{reader.getWidth(0), reader.getHeight(0)};
+                } finally {
+                    reader.dispose();
+                }
+            }
+        }
+
+        /**
+         * Decodes keeping every {@code subsampling}-th pixel in each direction.
+         */
+        private static BufferedImage read(byte[] data, int subsampling) throws Exception {
+            try (ImageInputStream stream = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+                ImageReader reader = readerFor(stream);
+                try {
+                    reader.setInput(stream, true, true);
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    if (subsampling > 1) {
+                        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                    }
+                    BufferedImage image = reader.read(0, param);
+                    if (image == null) {
+                        throw new FetchException("Failed to read image", true);
+                    }
+                    return image;
+                } finally {
+                    reader.dispose();
+                }
+            }
+        }
+
+        private static ImageReader readerFor(ImageInputStream stream) throws FetchException {
+            Iterator<ImageReader> readers = stream == null ? null : ImageIO.getImageReaders(stream);
+            if (readers == null || !readers.hasNext()) {
+                throw new FetchException("Failed to read image", true);
+            }
+            return readers.next();
+        }
+
+        /**
+         * Largest subsampling that still leaves at least twice the target size, so the
+         * smooth downscale has a factor of two to work with.
+         */
+        private static int subsamplingFor(int width, int height, int maxWidth, int maxHeight) {
+            if (maxWidth <= 0 || maxHeight <= 0) return 1;
+            double scale = Math.min((double) width / maxWidth, (double) height / maxHeight);
+            return Math.max(1, (int) (scale / 2));
+        }
+
+        // The source image may be shared with other sizes, so only the scaled copy is flushed
+        private static ImageResult scaleStatic(BufferedImage image, int maxWidth, int maxHeight) {
+            BufferedImage processedImage = ImageCache.scaleIfNeeded(image, maxWidth, maxHeight);
+            int width = processedImage.getWidth();
+            int height = processedImage.getHeight();
+
+            int[] argbPixels = processedImage.getRGB(0, 0, width, height, null, 0, width);
+
+            if (processedImage != image) {
+                processedImage.flush();
+            }
+
+            return ImageResult.ofStaticRaw(argbPixels, width, height);
+        }
+
+        private static class StillSource implements Decoded {
+            private final byte[] data;
+            private final int width;
+            private final int height;
+            // Full-resolution decode, made on first use by a size that needs no subsampling
+            private volatile BufferedImage full;
+
+            StillSource(byte[] data, int width, int height) {
+                this.data = data;
+                this.width = width;
+                this.height = height;
+            }
+
+            @Override
+            public ImageResult render(int maxWidth, int maxHeight, BooleanSupplier cancelled) throws Exception {
+                int subsampling = subsamplingFor(width, height, maxWidth, maxHeight);
+                if (subsampling == 1) {
+                    return scaleStatic(full(), maxWidth, maxHeight);
+                }
+                BufferedImage image = read(data, subsampling);
+                try {
+                    return scaleStatic(image, maxWidth, maxHeight);
+                } finally {
+                    image.flush();
+                }
+            }
+
+            private synchronized BufferedImage full() throws Exception {
+                BufferedImage image = full;
+                if (image == null) {
+                    image = read(data, 1);
+                    full = image;
+                }
+                return image;
+            }
+
+            @Override
+            public long retainedBytes() {
+                BufferedImage image = full;
+                return data.length + (image == null ? 0 : (long) image.getWidth() * image.getHeight() * 4);
+            }
+
+            // Not flushed: a render that fetched it just before may still be scaling it
+            @Override
+            public synchronized void release() {
+                full = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package dev.cursedatom.cursedaddons.features.images;
+
+import com.google.gson.Gson;
+import dev.cursedatom.cursedaddons.CursedAddons;
+import dev.cursedatom.cursedaddons.config.ConfigKeys;
+import dev.cursedatom.cursedaddons.utils.ConfigProvider;
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded, content-addressed on-disk cache for downloaded image bytes.
+ * Entries are keyed by the SHA-256 of the URL they were fetched from, evicted
+ * least-recently-used once the total size exceeds the configured budget, and
+ * written through a temp file + atomic rename so a crash never leaves a torn entry.
+ * File modification times carry the LRU order across restarts.
+ *
+ * Each entry has a {@code .meta} sidecar holding its {@link CacheValidators}; entries
+ * whose sidecar is missing are treated as stale with nothing to revalidate against.
+ */
+public final class ImageDiskCache {
+    public static final Path CACHE_ROOT = FabricLoader.getInstance().getConfigDir().resolve("cursedaddons").resolve("cache");
+    private static final Path IMAGE_DIR = CACHE_ROOT.resolve("images");
+    private static final String ENTRY_SUFFIX = ".bin";
+    private static final String META_SUFFIX = ".meta";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int DEFAULT_MAX_SIZE_MB = 100;
+    private static final CacheValidators NO_VALIDATORS = new CacheValidators(null, null, 0, false);
+    private static final Gson GSON = new Gson();
+
+    private static final Object indexLock = new Object();
+    // Access-ordered: iteration starts at the least recently used entry
+    private static final LinkedHashMap<String, IndexEntry> index = new LinkedHashMap<>(64, 0.75f, true);
+    private static long totalBytes = 0;
+    private static boolean loaded = false;
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong stale = new AtomicLong();
+    private static final AtomicLong revalidated = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+
+    private ImageDiskCache() {}
+
+    public static boolean isEnabled() {
+        return ConfigProvider.getBoolean(ConfigKeys.IMAGE_DISK_CACHE_ENABLED, true);
+    }
+
+    private static long getMaxBytes() {
+        int mb = ConfigProvider.getInt(ConfigKeys.IMAGE_DISK_CACHE_SIZE_MB, DEFAULT_MAX_SIZE_MB);
+        return Math.max(mb, 1) * 1024L * 1024L;
+    }
+
+    /**
+     * Returns the cached entry for this URL, or null on a miss. The entry may be stale;
+     * callers check {@link Entry#isFresh()} and revalidate before using stale bytes.
+     * Performs file I/O — call from async thread.
+     */
+    public static Entry get(String url) {
+        if (!isEnabled()) return null;
+        ensureLoaded();
+
+        String key = hashKey(UrlCanonicalizer.canonicalize(url));
+        IndexEntry indexEntry;
+        synchronized (indexLock) {
+            indexEntry = index.get(key);
+        }
+        if (indexEntry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        Path file = entryPath(key);
+        try {
+            byte[] data = Files.readAllBytes(file);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            Entry entry = new Entry(data, indexEntry.validators);
+            if (entry.isFresh()) {
+                hits.incrementAndGet();
+            } else {
+                stale.incrementAndGet();
+            }
+            return entry;
+        } catch (IOException e) {
+            // Deleted externally or unreadable: drop it from the index and treat as a miss
+            synchronized (indexLock) {
+                IndexEntry removed = index.remove(key);
+                if (removed != null) totalBytes -= removed.size();
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Stores bytes fetched from this URL, evicting least-recently-used entries to stay within budget.
+     * Responses marked {@code no-store} are not written, and drop any older entry for the URL.
+     * Performs file I/O — call from async thread.
+     */
+    public static void put(String url, byte[] data, CacheValidators validators) {
+        if (!isEnabled() || data == null || data.length == 0) return;
+        ensureLoaded();
+
+        String key = hashKey(UrlCanonicalizer.canonicalize(url));
+        if (validators != null && validators.noStore()) {
+            remove(key);
+            return;
+        }
+        long maxBytes = getMaxBytes();
+        if (data.length > maxBytes) return;
+        CacheValidators stored = validators != null ? validators : NO_VALIDATORS;
+        byte[] meta = GSON.toJson(stored).getBytes(StandardCharsets.UTF_8);
+        try {
+            writeAtomically(entryPath(key), data);
+            writeAtomically(metaPath(key), meta);
+        } catch (IOException e) {
+            CursedAddons.LOGGER.warn("[ImageDiskCache] Failed to write cache entry for " + url + ": " + e.getMessage());
+            return;
+        }
+
+        List<String> evicted = new ArrayList<>();
+        synchronized (indexLock) {
+            IndexEntry entry = new IndexEntry(data.length, meta.length, stored);
+            IndexEntry previous = index.put(key, entry);
+            if (previous != null) totalBytes -= previous.size();
+            totalBytes += entry.size();
+
+            Iterator<Map.Entry<String, IndexEntry>> it = index.entrySet().iterator();
+            while (totalBytes > maxBytes && it.hasNext()) {
+                Map.Entry<String, IndexEntry> eldest = it.next();
+                if (eldest.getKey().equals(key)) continue;
+                totalBytes -= eldest.getValue().size();
+                evicted.add(eldest.getKey());
+                it.remove();
+            }
+        }
+
+        for (String evictedKey : evicted) {
+            deleteEntryFiles(evictedKey);
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records a successful revalidation (HTTP 304): the stored bytes are kept and the
+     * validators are replaced with ones merged from the 304 response. A 304 marked
+     * {@code no-store} removes the entry instead.
+     */
+    public static void refresh(String url, CacheValidators notModified) {
+        if (!isEnabled()) return;
+        ensureLoaded();
+
+        String key = hashKey(UrlCanonicalizer.canonicalize(url));
+        if (notModified.noStore()) {
+            remove(key);
+            return;
+        }
+        byte[] meta;
+        synchronized (indexLock) {
+            IndexEntry indexEntry = index.get(key);
+            if (indexEntry == null) return;
+            CacheValidators updated = indexEntry.validators.updatedBy(notModified);
+            meta = GSON.toJson(updated).getBytes(StandardCharsets.UTF_8);
+            index.put(key, new IndexEntry(indexEntry.dataSize, meta.length, updated));
+            totalBytes += meta.length - indexEntry.metaSize;
+        }
+        revalidated.incrementAndGet();
+
+        try {
+            writeAtomically(metaPath(key), meta);
+        } catch (IOException e) {
+            CursedAddons.LOGGER.warn("[ImageDiskCache] Failed to update cache metadata for " + url + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes every cached entry and resets the counters.
+     */
+    public static void clear() {
+        ensureLoaded();
+        List<String> keys;
+        synchronized (indexLock) {
+            keys = new ArrayList<>(index.keySet());
+            index.clear();
+            totalBytes = 0;
+        }
+        for (String key : keys) {
+            deleteEntryFiles(key);
+        }
+        hits.set(0);
+        stale.set(0);
+        revalidated.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    public static Stats getStats() {
+        ensureLoaded();
+        synchronized (indexLock) {
+            return new Stats(index.size(), totalBytes, getMaxBytes(),
+                hits.get(), revalidated.get(), stale.get(), misses.get(), evictions.get());
+        }
+    }
+
+    /**
+     * Scans the cache directory once, rebuilding the in-memory index in LRU order
+     * from file modification times and removing temp files left behind by a crash,
+     * along with metadata whose entry file is gone.
+     */
+    private static void ensureLoaded() {
+        synchronized (indexLock) {
+            if (loaded) return;
+            loaded = true;
+
+            List<Found> found = new ArrayList<>();
+            try {
+                Files.createDirectories(IMAGE_DIR);
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(IMAGE_DIR)) {
+                    for (Path file : stream) {
+                        String name = file.getFileName().toString();
+                        if (name.endsWith(TEMP_SUFFIX)) {
+                            Files.deleteIfExists(file);
+                        } else if (name.endsWith(META_SUFFIX)) {
+                            String key = name.substring(0, name.length() - META_SUFFIX.length());
+                            if (!Files.exists(entryPath(key))) Files.deleteIfExists(file);
+                        } else if (name.endsWith(ENTRY_SUFFIX)) {
+                            String key = name.substring(0, name.length() - ENTRY_SUFFIX.length());
+                            Path meta = metaPath(key);
+                            long metaSize = Files.exists(meta) ? Files.size(meta) : 0;
+                            found.add(new Found(key, Files.size(file), metaSize, Files.getLastModifiedTime(file).toMillis()));
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                CursedAddons.LOGGER.warn("[ImageDiskCache] Failed to scan cache directory: " + e.getMessage());
+            }
+
+            found.sort((a, b) -> Long.compare(a.mtime, b.mtime));
+            for (Found entry : found) {
+                index.put(entry.key, new IndexEntry(entry.dataSize, entry.metaSize, readMeta(entry.key)));
+                totalBytes += entry.dataSize + entry.metaSize;
+            }
+        }
+    }
+
+    private static CacheValidators readMeta(String key) {
+        try {
+            CacheValidators validators = GSON.fromJson(Files.readString(metaPath(key)), CacheValidators.class);
+            return validators != null ? validators : NO_VALIDATORS;
+        } catch (Exception e) {
+            return NO_VALIDATORS;
+        }
+    }
+
+    /**
+     * Writes {@code data} to a temp file beside {@code target} and moves it into place, so
+     * readers never see a partial file. Also used for the other files under {@link #CACHE_ROOT}.
+     */
+    static void writeAtomically(Path target, byte[] data) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), TEMP_SUFFIX);
+        try {
+            Files.write(temp, data);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void remove(String key) {
+        synchronized (indexLock) {
+            IndexEntry removed = index.remove(key);
+            if (removed == null) return;
+            totalBytes -= removed.size();
+        }
+        deleteEntryFiles(key);
+    }
+
+    private static void deleteEntryFiles(String key) {
+        try {
+            Files.deleteIfExists(entryPath(key));
+            Files.deleteIfExists(metaPath(key));
+        } catch (IOException e) {
+            CursedAddons.LOGGER.warn("[ImageDiskCache] Failed to delete cache entry " + key + ": " + e.getMessage());
+        }
+    }
+
+    private static Path entryPath(String key) {
+        return IMAGE_DIR.resolve(key + ENTRY_SUFFIX);
+    }
+
+    private static Path metaPath(String key) {
+        return IMAGE_DIR.resolve(key + META_SUFFIX);
+    }
+
+    static String hashKey(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(url.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    private record IndexEntry(long dataSize, long metaSize, CacheValidators validators) {
+        // Both files count against the size budget
+        long size() {
+            return dataSize + metaSize;
+        }
+    }
+
+    private record Found(String key, long dataSize, long metaSize, long mtime) {}
+
+    /**
+     * Bytes read from disk together with the validators they were stored with.
+     */
+    public record Entry(byte[] data, CacheValidators validators) {
+        public boolean isFresh() {
+            return validators.isFresh();
+        }
+    }
+
+    /**
+     * Counters since startup. Stale entries that revalidate with a 304 count towards the hit rate.
+     */
+    public record Stats(int entries, long bytes, long maxBytes, long hits, long revalidated,
+                        long stale, long misses, long evictions) {
+        public double hitRate() {
+            long total = hits + stale + misses;
+            return total == 0 ? 0.0 : (double) (hits + revalidated) / total;
+        }
+    }
+}
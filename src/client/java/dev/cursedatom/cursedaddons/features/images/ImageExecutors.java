@@ -0,0 +1,60 @@
+package dev.cursedatom.cursedaddons.features.images;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mod-owned executors for image loading, so downloads and decodes never run on
+ * {@link java.util.concurrent.ForkJoinPool#commonPool()} shared with Minecraft and other mods.
+ * <ul>
+ *   <li>{@link #io()}: one virtual thread per task, for blocking network waits and DNS lookups.</li>
+ *   <li>{@link #decode()}: a bounded pool of platform threads sized to the cores (minus one
+ *       for the render thread), for CPU-heavy decoding, scaling and encoding.</li>
+ * </ul>
+ */
+public final class ImageExecutors {
+    private static final int DECODE_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private static final long DECODE_KEEP_ALIVE_SECONDS = 30;
+
+    private static final ExecutorService IO = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("cursedaddons-image-io-", 0).factory());
+
+    private static final ThreadPoolExecutor DECODE = new ThreadPoolExecutor(
+        DECODE_THREADS, DECODE_THREADS,
+        DECODE_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(),
+        new DecodeThreadFactory());
+
+    static {
+        // Idle decode threads exit so the pool costs nothing when no images are loading
+        DECODE.allowCoreThreadTimeOut(true);
+    }
+
+    private ImageExecutors() {}
+
+    public static ExecutorService io() {
+        return IO;
+    }
+
+    public static ExecutorService decode() {
+        return DECODE;
+    }
+
+    private static class DecodeThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "cursedaddons-image-decode-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            // Keep decode work from competing with the render and server threads
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    }
+}
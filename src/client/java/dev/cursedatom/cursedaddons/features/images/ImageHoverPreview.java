@@ -4,6 +4,10 @@ import dev.cursedatom.cursedaddons.config.SpecialUnits;
 import dev.cursedatom.cursedaddons.config.ConfigKeys;
 import dev.cursedatom.cursedaddons.utils.ConfigProvider;
 import dev.cursedatom.cursedaddons.CursedAddons;
+import dev.cursedatom.cursedaddons.api.images.v1.ImageResolver;
+import dev.cursedatom.cursedaddons.api.images.v1.ImageResolverEntrypoint;
+import net.fabricmc.loader.api.FabricLoader;
+import net.fabricmc.loader.api.entrypoint.EntrypointContainer;
 
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -20,6 +24,9 @@ public final class ImageHoverPreview {
         Pattern.CASE_INSENSITIVE
     );
 
+    // Unshifted previews fit in this fraction of the screen in each dimension
+    public static final int PREVIEW_SIZE_DIVISOR = 4;
+
     private static long cachedVersion = -1;
     private static List<SpecialUnits.WhitelistUnit> cachedWhitelist = List.of();
 
@@ -62,10 +69,12 @@ public final class ImageHoverPreview {
 
     /**
      * Returns true if the URL is not a direct image URL but can be resolved
-     * via embed URL resolution (e.g. imgur.com/abc, tenor.com/view/...).
+     * via embed URL resolution (e.g. imgur.com/abc, tenor.com/view/...), or is a
+     * direct link with a better rewrite (e.g. preview.redd.it to i.redd.it).
      */
     public static boolean needsResolution(String url) {
         if (url == null) return false;
+        if (UrlResolver.isRewritable(url)) return true;
         return !IMAGE_PATTERN.matcher(url).find() && UrlResolver.isResolvable(url);
     }
 
@@ -88,7 +97,7 @@ public final class ImageHoverPreview {
         try {
             java.net.URL url;
             try {
-                url = new URI(imageUrl).toURL();
+                url = new URI(UrlCanonicalizer.canonicalize(imageUrl)).toURL();
             } catch (URISyntaxException e) {
                 return null;
             }
@@ -122,5 +131,21 @@ public final class ImageHoverPreview {
      */
     public static void init() {
         refreshWhitelistCache();
+        loadResolverExtensions();
+    }
+
+    /**
+     * Registers the {@link ImageResolver}s other mods contribute through {@link ImageResolverEntrypoint}.
+     */
+    private static void loadResolverExtensions() {
+        for (EntrypointContainer<ImageResolverEntrypoint> container : FabricLoader.getInstance()
+                .getEntrypointContainers(ImageResolverEntrypoint.KEY, ImageResolverEntrypoint.class)) {
+            try {
+                container.getEntrypoint().registerImageResolvers(UrlResolver::register);
+            } catch (Throwable t) {
+                CursedAddons.LOGGER.error("[ImageHoverPreview] Failed to load image resolvers from "
+                    + container.getProvider().getMetadata().getId() + ": " + t.getMessage());
+            }
+        }
     }
 }
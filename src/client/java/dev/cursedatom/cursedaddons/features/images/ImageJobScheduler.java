@@ -0,0 +1,250 @@
+package dev.cursedatom.cursedaddons.features.images;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admits image jobs to the network by priority and cancels the ones nobody is waiting for.
+ *
+ * At most {@code MAX_CONCURRENT_FETCHES} jobs download at once; the rest wait in a queue
+ * ordered by {@link Priority} (hovered images first), then submission order. Jobs for a host
+ * that already has {@link HostLimiter#getMaxConnections()} jobs running are passed over, so a
+ * burst of links to one site cannot hold every slot while other hosts wait. A hovered job
+ * is abandoned once its cache key has not been hovered for {@code ABANDON_AFTER_MS}.
+ * {@link #tick} cancels abandoned jobs, which closes their open
+ * connection; decode and texture upload check {@link Job#isCancelled()} / {@link #isAbandoned}
+ * at their own boundaries and drop partial work.
+ */
+public final class ImageJobScheduler {
+    private static final int MAX_CONCURRENT_FETCHES = 8;
+    private static final long ABANDON_AFTER_MS = 1_000;
+    private static final long HOVER_RECORD_TTL_MS = 30_000;
+
+    public enum Priority {
+        HOVER,
+        PREFETCH,
+        WARMUP
+    }
+
+    private static final Object queueLock = new Object();
+    private static final TreeSet<Job> queue = new TreeSet<>(
+        Comparator.comparing((Job job) -> job.priority).thenComparingLong(job -> job.sequence));
+    private static int running = 0;
+    private static final Map<String, Integer> runningByHost = new HashMap<>();
+
+    private static final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private static final Map<String, Long> lastHovered = new ConcurrentHashMap<>();
+    private static final AtomicLong sequenceCounter = new AtomicLong();
+
+    private ImageJobScheduler() {}
+
+    /**
+     * Creates and registers a job for the given cache key. The job stays registered
+     * until {@link #finish} is called.
+     */
+    public static Job newJob(String url, String cacheKey, Priority priority) {
+        Job job = new Job(HttpFetcher.hostOf(url), priority, sequenceCounter.getAndIncrement());
+        job.keys.add(cacheKey);
+        jobs.put(cacheKey, job);
+        return job;
+    }
+
+    /**
+     * Attaches another cache key to a running job, so one download serves several
+     * preview sizes. A hover job is only cancelled once every attached key is abandoned.
+     */
+    public static void join(Job job, String cacheKey, Priority priority) {
+        job.keys.add(cacheKey);
+        jobs.put(cacheKey, job);
+        raisePriority(job, priority);
+    }
+
+    /**
+     * Queues {@code task} to run on {@link ImageExecutors#io()} once the job is admitted.
+     * The network slot is released when the task returns.
+     */
+    public static <T> CompletableFuture<T> schedule(Job job, Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        job.start = () -> ImageExecutors.io().execute(() -> {
+            try {
+                job.throwIfCancelled();
+                future.complete(task.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(job.isCancelled() ? new CancellationException("Image load cancelled") : t);
+            } finally {
+                release(job);
+            }
+        });
+        job.onCancelWhileQueued = () -> future.completeExceptionally(new CancellationException("Image load cancelled"));
+
+        synchronized (queueLock) {
+            queue.add(job);
+        }
+        dispatch();
+        return future;
+    }
+
+    public static void finish(Job job) {
+        for (String key : job.keys) {
+            jobs.remove(key, job);
+        }
+    }
+
+    /**
+     * Records that the user is hovering this cache key right now. Called every frame while hovered.
+     * Also raises a queued job for the key to {@link Priority#HOVER}.
+     */
+    public static void touch(String cacheKey) {
+        lastHovered.put(cacheKey, System.currentTimeMillis());
+        Job job = jobs.get(cacheKey);
+        if (job != null) {
+            raisePriority(job, Priority.HOVER);
+        }
+    }
+
+    private static void raisePriority(Job job, Priority priority) {
+        if (priority.compareTo(job.priority) >= 0) return;
+        synchronized (queueLock) {
+            // Re-insert so the queue re-sorts with the new priority
+            boolean queued = queue.remove(job);
+            job.priority = priority;
+            if (queued) queue.add(job);
+        }
+    }
+
+    /**
+     * True if this key was hovered but no longer is. Keys that were never hovered
+     * (prefetch / warm-up) are never abandoned.
+     */
+    public static boolean isAbandoned(String cacheKey) {
+        Long hoveredAt = lastHovered.get(cacheKey);
+        return hoveredAt != null && System.currentTimeMillis() - hoveredAt > ABANDON_AFTER_MS;
+    }
+
+    /**
+     * Cancels abandoned hover jobs and lets {@link HostLimiter} forget idle hosts. Called once per client tick. Previews can be hovered in
+     * any screen with component hovers, so abandonment relies on the touch timeout alone.
+     */
+    public static void tick() {
+        HostLimiter.prune();
+        long now = System.currentTimeMillis();
+        lastHovered.values().removeIf(time -> now - time > HOVER_RECORD_TTL_MS);
+
+        for (Job job : new HashSet<>(jobs.values())) {
+            if (job.priority == Priority.HOVER && job.keys.stream().allMatch(ImageJobScheduler::isAbandoned)) {
+                cancel(job);
+            }
+        }
+    }
+
+    private static void cancel(Job job) {
+        boolean wasQueued;
+        synchronized (queueLock) {
+            wasQueued = queue.remove(job);
+        }
+        job.cancel();
+        if (wasQueued && job.onCancelWhileQueued != null) {
+            job.onCancelWhileQueued.run();
+        }
+    }
+
+    private static void release(Job job) {
+        synchronized (queueLock) {
+            running--;
+            runningByHost.computeIfPresent(job.host, (host, count) -> count > 1 ? count - 1 : null);
+        }
+        dispatch();
+    }
+
+    private static void dispatch() {
+        List<Job> toStart = new ArrayList<>();
+        synchronized (queueLock) {
+            int perHostLimit = HostLimiter.getMaxConnections();
+            Iterator<Job> it = queue.iterator();
+            while (running < MAX_CONCURRENT_FETCHES && it.hasNext()) {
+                Job job = it.next();
+                if (runningByHost.getOrDefault(job.host, 0) >= perHostLimit) continue;
+                it.remove();
+                running++;
+                runningByHost.merge(job.host, 1, Integer::sum);
+                toStart.add(job);
+            }
+        }
+        for (Job job : toStart) {
+            job.start.run();
+        }
+    }
+
+    /**
+     * A single image load. Resources registered with {@link #register} (open HTTP bodies)
+     * are closed on cancellation, aborting the transfer.
+     */
+    public static final class Job {
+        private final String host;
+        private final Set<String> keys = ConcurrentHashMap.newKeySet();
+        private final long sequence;
+        private volatile Priority priority;
+        private volatile boolean cancelled;
+        private final Set<Closeable> resources = ConcurrentHashMap.newKeySet();
+        private Runnable start;
+        private Runnable onCancelWhileQueued;
+
+        private Job(String host, Priority priority, long sequence) {
+            this.host = host;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        public Priority getPriority() {
+            return priority;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public void throwIfCancelled() {
+            if (cancelled) {
+                throw new CancellationException("Image load cancelled");
+            }
+        }
+
+        public void register(Closeable resource) {
+            resources.add(resource);
+            // Cancelled between the check and the registration: close it ourselves
+            if (cancelled) closeQuietly(resource);
+        }
+
+        public void unregister(Closeable resource) {
+            resources.remove(resource);
+        }
+
+        private void cancel() {
+            cancelled = true;
+            for (Closeable resource : resources) {
+                closeQuietly(resource);
+            }
+            resources.clear();
+        }
+
+        private static void closeQuietly(Closeable resource) {
+            try {
+                resource.close();
+            } catch (IOException ignored) {}
+        }
+    }
+}
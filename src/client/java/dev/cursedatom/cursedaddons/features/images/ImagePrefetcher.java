@@ -0,0 +1,161 @@
+package dev.cursedatom.cursedaddons.features.images;
+
+import dev.cursedatom.cursedaddons.config.ConfigKeys;
+import dev.cursedatom.cursedaddons.utils.ConfigProvider;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opt-in background loading of image previews, so the preview is usually ready by the time it
+ * is hovered. Links are queued from newly arrived chat messages ({@link #isEnabled()}) and from
+ * the chat lines on screen ({@link VisibleChatPrefetcher}). Prefetching only downloads: the
+ * bytes land in {@link ImageDiskCache} and {@link ImageCache}'s source tier, while scaling and
+ * texture upload wait for the hover, so a burst of links never evicts a preview being looked at.
+ *
+ * Background work runs at {@link ImageJobScheduler.Priority#PREFETCH}, behind every hovered
+ * image, and is capped three ways: at most {@code PrefetchMaxConcurrent} prefetches at once,
+ * and per rolling minute at most {@code PrefetchMegabytesPerMinute} downloaded and
+ * {@code PrefetchMegapixelsPerMinute} decoded. Once a budget is spent, queued links wait for
+ * it to free up; an image whose decode would overrun the pixel budget is dropped (it still
+ * loads normally on hover, from the disk cache).
+ */
+public final class ImagePrefetcher {
+    private static final int DEFAULT_MAX_CONCURRENT = 2;
+    private static final int DEFAULT_MEGABYTES_PER_MINUTE = 16;
+    private static final int DEFAULT_MEGAPIXELS_PER_MINUTE = 32;
+    // Older links are dropped first: the newest messages are the ones most likely to be hovered
+    private static final int MAX_PENDING = 32;
+    private static final long BUDGET_WINDOW_MS = 60_000;
+    private static final long BUDGET_RECHECK_MS = 5_000;
+
+    private static final Object lock = new Object();
+    private static final Deque<Request> pending = new ArrayDeque<>();
+    private static final Budget bytes = new Budget();
+    private static final Budget pixels = new Budget();
+    private static int inFlight = 0;
+    private static boolean recheckScheduled = false;
+
+    private ImagePrefetcher() {}
+
+    /**
+     * True if links in newly arrived messages should be prefetched.
+     */
+    public static boolean isEnabled() {
+        return ImageHoverPreview.isEnabled() && ConfigProvider.getBoolean(ConfigKeys.IMAGE_PREFETCH_ENABLED, false);
+    }
+
+    /**
+     * Queues a whitelisted image URL for prefetch at the given preview size.
+     */
+    public static void enqueue(String url, int maxWidth, int maxHeight) {
+        if (!ImageHoverPreview.isEnabled()) return;
+        synchronized (lock) {
+            for (Request request : pending) {
+                if (request.url.equals(url)) return;
+            }
+            if (pending.size() >= MAX_PENDING) {
+                pending.pollFirst();
+            }
+            pending.addLast(new Request(url, maxWidth, maxHeight));
+        }
+        pump();
+    }
+
+    /**
+     * Counts bytes a background job downloaded against the per-minute budget.
+     */
+    static void recordBytes(long count) {
+        synchronized (lock) {
+            bytes.add(count);
+        }
+    }
+
+    /**
+     * Reserves decode work for a background job. Returns false if it would overrun the
+     * per-minute pixel budget, in which case the job should be dropped.
+     */
+    static boolean tryReservePixels(long count) {
+        synchronized (lock) {
+            if (pixels.used() + count > getMegapixelsPerMinute() * 1_000_000L) return false;
+            pixels.add(count);
+            return true;
+        }
+    }
+
+    private static void pump() {
+        while (true) {
+            Request request;
+            synchronized (lock) {
+                if (pending.isEmpty() || inFlight >= getMaxConcurrent()) return;
+                if (!ImageHoverPreview.isEnabled()) {
+                    pending.clear();
+                    return;
+                }
+                if (bytes.used() >= getMegabytesPerMinute() * 1024L * 1024L
+                        || pixels.used() >= getMegapixelsPerMinute() * 1_000_000L) {
+                    scheduleRecheck();
+                    return;
+                }
+                request = pending.pollLast();
+                inFlight++;
+            }
+            ImageCache.prefetch(request.url, request.maxWidth, request.maxHeight)
+                .whenComplete((result, error) -> {
+                    synchronized (lock) {
+                        inFlight--;
+                    }
+                    pump();
+                });
+        }
+    }
+
+    // Must hold lock
+    private static void scheduleRecheck() {
+        if (recheckScheduled) return;
+        recheckScheduled = true;
+        CompletableFuture.runAsync(() -> {
+            synchronized (lock) {
+                recheckScheduled = false;
+            }
+            pump();
+        }, CompletableFuture.delayedExecutor(BUDGET_RECHECK_MS, TimeUnit.MILLISECONDS, ImageExecutors.io()));
+    }
+
+    private static int getMaxConcurrent() {
+        return Math.max(1, ConfigProvider.getInt(ConfigKeys.IMAGE_PREFETCH_MAX_CONCURRENT, DEFAULT_MAX_CONCURRENT));
+    }
+
+    private static int getMegabytesPerMinute() {
+        return Math.max(1, ConfigProvider.getInt(ConfigKeys.IMAGE_PREFETCH_MEGABYTES_PER_MINUTE, DEFAULT_MEGABYTES_PER_MINUTE));
+    }
+
+    private static int getMegapixelsPerMinute() {
+        return Math.max(1, ConfigProvider.getInt(ConfigKeys.IMAGE_PREFETCH_MEGAPIXELS_PER_MINUTE, DEFAULT_MEGAPIXELS_PER_MINUTE));
+    }
+
+    private record Request(String url, int maxWidth, int maxHeight) {}
+
+    /**
+     * Amounts spent in the last {@code BUDGET_WINDOW_MS}. Guarded by {@code lock}.
+     */
+    private static class Budget {
+        private final Deque<long[]> spent = new ArrayDeque<>();
+        private long total = 0;
+
+        void add(long amount) {
+            spent.addLast(new long[]{System.currentTimeMillis(), amount});
+            total += amount;
+        }
+
+        long used() {
+            long cutoff = System.currentTimeMillis() - BUDGET_WINDOW_MS;
+            while (!spent.isEmpty() && spent.peekFirst()[0] < cutoff) {
+                total -= spent.pollFirst()[1];
+            }
+            return total;
+        }
+    }
+}
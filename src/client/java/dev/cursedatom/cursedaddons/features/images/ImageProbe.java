@@ -0,0 +1,195 @@
+package dev.cursedatom.cursedaddons.features.images;
+
+import dev.cursedatom.cursedaddons.config.ConfigKeys;
+import dev.cursedatom.cursedaddons.utils.ConfigProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the format and canvas dimensions of PNG, JPEG, GIF and WebP images from their
+ * first bytes, so images over the pixel budget are rejected before the rest of the body
+ * is downloaded or anything is decoded. A small, highly compressed file can otherwise
+ * expand into a canvas far too large to hold in memory.
+ */
+public final class ImageProbe {
+    private static final int PROBE_CHUNK_BYTES = 4 * 1024;
+    // JPEG dimensions follow any EXIF/ICC segments, which can push them well past the first chunk
+    private static final int MAX_PROBE_BYTES = 256 * 1024;
+    private static final int DEFAULT_MAX_MEGAPIXELS = 50;
+
+    public enum Format {
+        PNG,
+        JPEG,
+        GIF,
+        WEBP
+    }
+
+    /**
+     * Probe result. {@code width}/{@code height} are -1 when the format is known
+     * but the dimensions lie beyond the bytes seen so far.
+     */
+    public record Info(Format format, int width, int height) {
+        public boolean hasDimensions() {
+            return width > 0 && height > 0;
+        }
+
+        public long pixels() {
+            return (long) width * height;
+        }
+    }
+
+    private ImageProbe() {}
+
+    private static long getMaxPixels() {
+        int megapixels = ConfigProvider.getInt(ConfigKeys.IMAGE_MAX_MEGAPIXELS, DEFAULT_MAX_MEGAPIXELS);
+        return Math.max(megapixels, 1) * 1_000_000L;
+    }
+
+    /**
+     * Reads a response body, probing its header first and throwing as soon as the
+     * image is known to exceed the pixel budget. The rest of the body is only read
+     * once the header has passed.
+     */
+    public static byte[] readChecked(InputStream in) throws Exception {
+        byte[] head = new byte[PROBE_CHUNK_BYTES];
+        int length = in.readNBytes(head, 0, head.length);
+        Info info = probe(head, length);
+        while (info != null && !info.hasDimensions() && length == head.length && head.length < MAX_PROBE_BYTES) {
+            head = Arrays.copyOf(head, head.length * 2);
+            length += in.readNBytes(head, length, head.length - length);
+            info = probe(head, length);
+        }
+        checkBudget(info);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length + Math.max(in.available(), PROBE_CHUNK_BYTES));
+        out.write(head, 0, length);
+        in.transferTo(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Probes already-downloaded bytes (e.g. from the disk cache) and enforces the pixel budget.
+     * Returns null for formats the probe does not recognise.
+     */
+    public static Info check(byte[] data) throws Exception {
+        Info info = probe(data, Math.min(data.length, MAX_PROBE_BYTES));
+        checkBudget(info);
+        return info;
+    }
+
+    private static void checkBudget(Info info) throws FetchException {
+        if (info == null || !info.hasDimensions()) return;
+        checkDimensions(info.width(), info.height());
+    }
+
+    /**
+     * Enforces the pixel budget for a size only known while decoding.
+     */
+    static void checkDimensions(int width, int height) throws FetchException {
+        long maxPixels = getMaxPixels();
+        if ((long) width * height > maxPixels) {
+            throw new FetchException("Image too large (" + width + "x" + height + ", "
+                + (maxPixels / 1_000_000) + " MP max)", true);
+        }
+    }
+
+    /**
+     * Identifies the format from its magic bytes and reads the canvas size if present
+     * in the first {@code length} bytes. Returns null if the format is not recognised.
+     */
+    public static Info probe(byte[] data, int length) {
+        if (length >= 8 && u8(data, 0) == 0x89 && data[1] == 'P' && data[2] == 'N' && data[3] == 'G') {
+            // Signature, then the IHDR chunk: length, type, width, height (big-endian)
+            if (length < 24) return new Info(Format.PNG, -1, -1);
+            return new Info(Format.PNG, be32(data, 16), be32(data, 20));
+        }
+        if (length >= 6 && data[0] == 'G' && data[1] == 'I' && data[2] == 'F' && data[3] == '8') {
+            // Logical screen descriptor (little-endian)
+            if (length < 10) return new Info(Format.GIF, -1, -1);
+            return new Info(Format.GIF, le16(data, 6), le16(data, 8));
+        }
+        if (length >= 3 && u8(data, 0) == 0xFF && u8(data, 1) == 0xD8 && u8(data, 2) == 0xFF) {
+            return probeJpeg(data, length);
+        }
+        if (length >= 12 && data[0] == 'R' && data[1] == 'I' && data[2] == 'F' && data[3] == 'F'
+                && data[8] == 'W' && data[9] == 'E' && data[10] == 'B' && data[11] == 'P') {
+            return probeWebp(data, length);
+        }
+        return null;
+    }
+
+    private static Info probeJpeg(byte[] data, int length) {
+        int pos = 2;
+        while (pos + 4 <= length) {
+            if (u8(data, pos) != 0xFF) return new Info(Format.JPEG, -1, -1);
+            int marker = u8(data, pos + 1);
+            if (marker == 0xFF) {
+                // Fill byte before a marker
+                pos++;
+                continue;
+            }
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD9)) {
+                // Standalone markers carry no length
+                pos += 2;
+                continue;
+            }
+            int segmentLength = be16(data, pos + 2);
+            boolean isStartOfFrame = marker >= 0xC0 && marker <= 0xCF
+                && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+            if (isStartOfFrame) {
+                if (pos + 9 > length) break;
+                // Length, sample precision, then height and width
+                return new Info(Format.JPEG, be16(data, pos + 7), be16(data, pos + 5));
+            }
+            pos += 2 + segmentLength;
+        }
+        return new Info(Format.JPEG, -1, -1);
+    }
+
+    private static Info probeWebp(byte[] data, int length) {
+        if (length < 30) return new Info(Format.WEBP, -1, -1);
+        String chunk = new String(data, 12, 4, StandardCharsets.US_ASCII);
+        switch (chunk) {
+            case "VP8X":
+                // Extended format: 24-bit canvas width-1 / height-1
+                return new Info(Format.WEBP, 1 + le24(data, 24), 1 + le24(data, 27));
+            case "VP8 ":
+                // Lossy: 14-bit dimensions after the frame tag and start code
+                return new Info(Format.WEBP, le16(data, 26) & 0x3FFF, le16(data, 28) & 0x3FFF);
+            case "VP8L": {
+                // Lossless: 14-bit width-1 / height-1 packed after the signature byte
+                int b0 = u8(data, 21), b1 = u8(data, 22), b2 = u8(data, 23), b3 = u8(data, 24);
+                int width = 1 + (b0 | ((b1 & 0x3F) << 8));
+                int height = 1 + ((b1 >> 6) | (b2 << 2) | ((b3 & 0x0F) << 10));
+                return new Info(Format.WEBP, width, height);
+            }
+            default:
+                return new Info(Format.WEBP, -1, -1);
+        }
+    }
+
+    private static int u8(byte[] data, int offset) {
+        return data[offset] & 0xFF;
+    }
+
+    private static int be16(byte[] data, int offset) {
+        return (u8(data, offset) << 8) | u8(data, offset + 1);
+    }
+
+    private static int be32(byte[] data, int offset) {
+        // Clamp absurd PNG sizes to int range; they are rejected by the budget anyway
+        long value = ((long) u8(data, offset) << 24) | (u8(data, offset + 1) << 16) | (u8(data, offset + 2) << 8) | u8(data, offset + 3);
+        return (int) Math.min(value, Integer.MAX_VALUE);
+    }
+
+    private static int le16(byte[] data, int offset) {
+        return u8(data, offset) | (u8(data, offset + 1) << 8);
+    }
+
+    private static int le24(byte[] data, int offset) {
+        return u8(data, offset) | (u8(data, offset + 1) << 8) | (u8(data, offset + 2) << 16);
+    }
+}
@@ -10,7 +10,6 @@ import java.io.ByteArrayInputStream;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 
@@ -29,20 +28,24 @@ public final class ImageTextureManager {
 
     private ImageTextureManager() {}
 
+    /**
+     * Cache keys follow the pattern "url@WxH" with the canonical URL, so variants of one image
+     * share an entry while different display sizes get their own.
+     */
     public static String getCacheKey(String url, int maxWidth, int maxHeight) {
-        return url + "@" + maxWidth + "x" + maxHeight;
+        return UrlCanonicalizer.canonicalize(url) + "@" + maxWidth + "x" + maxHeight;
     }
 
-    private static final int GIF_BATCH_SIZE = 8;
-
     /**
      * Prepares NativeImages from ImageResult on the calling thread (should be async),
      * then schedules fast texture registration on the render thread.
-     * For animated GIFs, frames are decoded and registered in small batches so the
-     * first frame renders immediately while remaining frames load asynchronously.
+     * For animated GIFs only the first frame is uploaded up front; later frames are
+     * materialized into a fixed ring of textures while the preview is shown.
      */
     public static void prepareAndRegister(String cacheKey, ImageResult result) {
         if (hasTextures(cacheKey)) return;
+        // The user moved on before the image was ready; it is uploaded on the next hover instead
+        if (ImageJobScheduler.isAbandoned(cacheKey)) return;
 
         try {
             if (result.isAnimated()) {
@@ -65,7 +68,7 @@ public final class ImageTextureManager {
                 }
 
                 Minecraft.getInstance().execute(() -> {
-                    if (hasTextures(cacheKey)) {
+                    if (hasTextures(cacheKey) || ImageJobScheduler.isAbandoned(cacheKey)) {
                         nativeImage.close();
                         return;
                     }
@@ -80,7 +83,7 @@ public final class ImageTextureManager {
                 int width = result.getWidth();
                 int height = result.getHeight();
                 Minecraft.getInstance().execute(() -> {
-                    if (hasTextures(cacheKey)) {
+                    if (hasTextures(cacheKey) || ImageJobScheduler.isAbandoned(cacheKey)) {
                         nativeImage.close();
                         return;
                     }
@@ -94,132 +97,32 @@ public final class ImageTextureManager {
     }
 
     /**
-     * Decodes and registers animated GIF frames in batches of {@link #GIF_BATCH_SIZE}.
-     * The first batch is decoded immediately on the calling async thread, so the
-     * first frame can render right away. Remaining batches are decoded on separate
-     * async threads and registered on the render thread as they complete.
+     * Registers an animated GIF as a small ring of textures that are refilled ahead of the
+     * playback clock. Only the first frame is decoded here; the rest are materialized from the
+     * PNG frame store on demand, see {@link AnimatedTextureEntry}.
      */
-    private static void prepareAndRegisterAnimated(String cacheKey, ImageResult result) {
+    private static void prepareAndRegisterAnimated(String cacheKey, ImageResult result) throws Exception {
         byte[][] framePngData = result.getGifFramePngData();
         int[] delays = result.getGifDelays();
         if (framePngData == null || delays == null) return;
 
-        final int MAX_GIF_FRAMES = 100; // Hard cap per GIF
-        int totalFrames = framePngData.length;
-        if (totalFrames > MAX_GIF_FRAMES) {
-            byte[][] truncated = new byte[MAX_GIF_FRAMES][];
-            System.arraycopy(framePngData, 0, truncated, 0, MAX_GIF_FRAMES);
-            framePngData = truncated;
-            int[] truncatedDelays = new int[MAX_GIF_FRAMES];
-            System.arraycopy(delays, 0, truncatedDelays, 0, MAX_GIF_FRAMES);
-            delays = truncatedDelays;
-            totalFrames = MAX_GIF_FRAMES;
-        }
-        final byte[][] frames = framePngData;
-        final int[] frameDelays = delays;
-        final int frameCount = totalFrames;
+        NativeImage firstFrame = NativeImage.read(new ByteArrayInputStream(framePngData[0]));
         int width = result.getWidth();
         int height = result.getHeight();
-
-        Identifier[] frameLocations = new Identifier[frameCount];
-        AtomicBoolean cancelled = new AtomicBoolean(false);
-        AnimatedTextureEntry entry = new AnimatedTextureEntry(frameLocations, frameDelays, width, height);
-
-        synchronized (textureCacheLock) {
-            animatedCache.put(cacheKey, entry);
-        }
-
-        int firstBatchEnd = Math.min(GIF_BATCH_SIZE, frameCount);
-        try {
-            registerFrameBatch(cacheKey, frames, frameLocations, 0, firstBatchEnd, cancelled);
-        } catch (Exception e) {
-            CursedAddons.LOGGER.error("[ImageTextureManager] Failed to prepare initial GIF batch for " + cacheKey + ": " + e.getMessage());
-            synchronized (textureCacheLock) {
-                animatedCache.remove(cacheKey);
-            }
-            return;
-        }
-
-        if (firstBatchEnd < frameCount) {
-            CompletableFuture.runAsync(() -> {
-                for (int batchStart = firstBatchEnd; batchStart < frameCount; batchStart += GIF_BATCH_SIZE) {
-                    boolean exists;
-                    synchronized (textureCacheLock) {
-                        exists = animatedCache.containsKey(cacheKey);
-                    }
-                    if (cancelled.get() || !exists) return;
-                    int batchEnd = Math.min(batchStart + GIF_BATCH_SIZE, frameCount);
-                    try {
-                        registerFrameBatch(cacheKey, frames, frameLocations, batchStart, batchEnd, cancelled);
-                    } catch (Exception e) {
-                        CursedAddons.LOGGER.error("[ImageTextureManager] Failed to prepare GIF batch [" + batchStart + "-" + batchEnd + "] for " + cacheKey + ": " + e.getMessage());
-                        return;
-                    }
-                }
-            });
-        }
-
-        Minecraft.getInstance().execute(ImageTextureManager::enforceCacheLimit);
-    }
-
-    /**
-     * Decodes a batch of frames to NativeImages (CPU-heavy, runs on async thread),
-     * then schedules their texture registration on the render thread.
-     */
-    private static void registerFrameBatch(String cacheKey, byte[][] framePngData,
-                                           Identifier[] frameLocations,
-                                           int start, int end, AtomicBoolean cancelled) throws Exception {
-        NativeImage[] batch = new NativeImage[end - start];
-        try {
-            for (int i = 0; i < batch.length; i++) {
-                if (cancelled.get()) {
-                    closeBatch(batch);
-                    return;
-                }
-                batch[i] = NativeImage.read(new ByteArrayInputStream(framePngData[start + i]));
-            }
-        } catch (Exception e) {
-            closeBatch(batch);
-            throw e;
-        }
-
-        final int batchStart = start;
         Minecraft.getInstance().execute(() -> {
-            boolean exists;
-            synchronized (textureCacheLock) {
-                exists = animatedCache.containsKey(cacheKey);
-            }
-            if (cancelled.get() || !exists) {
-                closeBatch(batch);
+            if (hasTextures(cacheKey) || ImageJobScheduler.isAbandoned(cacheKey)) {
+                firstFrame.close();
                 return;
             }
-            for (int i = 0; i < batch.length; i++) {
-                int frameIndex = batchStart + i;
-                try {
-                    long id = textureIdCounter.getAndIncrement();
-                    Supplier<String> nameSupplier = () -> "cursedaddons_gif_" + id;
-                    DynamicTexture dynamicTexture = new DynamicTexture(nameSupplier, batch[i]);
-
-                    String path = "gif_frames/" + id;
-                    Identifier location = Identifier.fromNamespaceAndPath("cursedaddons", path);
-
-                    Minecraft.getInstance().getTextureManager().register(location, dynamicTexture);
-                    frameLocations[frameIndex] = location;
-                    batch[i] = null; // Ownership transferred
-                } catch (Exception e) {
-                    CursedAddons.LOGGER.error("[ImageTextureManager] Failed to register GIF frame " + frameIndex + " for " + cacheKey + ": " + e.getMessage());
-                }
+            AnimatedTextureEntry entry = new AnimatedTextureEntry(cacheKey, framePngData, delays, width, height);
+            if (!entry.fill(0, 0, firstFrame)) return;
+            synchronized (textureCacheLock) {
+                animatedCache.put(cacheKey, entry);
             }
-            closeBatch(batch);
+            enforceCacheLimit();
         });
     }
 
-    private static void closeBatch(NativeImage[] batch) {
-        for (NativeImage img : batch) {
-            if (img != null) img.close();
-        }
-    }
-
     /**
      * Gets the current image data for rendering. For animated images,
      * returns the current frame based on elapsed time.
@@ -294,12 +197,7 @@ public final class ImageTextureManager {
     }
 
     private static void releaseAnimatedEntry(AnimatedTextureEntry entry) {
-        var textureManager = Minecraft.getInstance().getTextureManager();
-        for (Identifier loc : entry.frameLocations) {
-            if (loc != null) {
-                textureManager.release(loc);
-            }
-        }
+        entry.release();
     }
 
     private static void enforceCacheLimit() {
@@ -346,16 +244,32 @@ public final class ImageTextureManager {
         }
     }
 
+    /**
+     * An animated preview backed by at most {@code RING_SIZE} textures, however many frames
+     * the GIF has. Each render picks the frame due on the playback clock and queues the frames
+     * just after it: a frame is read from its PNG on the decode pool, then copied into a free
+     * slot's texture and uploaded in place on the render thread. A frame that is not ready in
+     * time leaves the previous one on screen. Render thread only.
+     */
     private static class AnimatedTextureEntry {
-        final Identifier[] frameLocations;
+        private static final int RING_SIZE = 4;
+
+        final String cacheKey;
+        final byte[][] framePngData;
         final int[] delays;
         final int width;
         final int height;
         final long startTime;
         final int totalDuration;
-
-        AnimatedTextureEntry(Identifier[] frameLocations, int[] delays, int width, int height) {
-            this.frameLocations = frameLocations;
+        private final FrameSlot[] slots;
+        private int shownSlot = -1;
+        private boolean released = false;
+        // Set after a frame fails to materialize; playback then stays on the frames already loaded
+        private boolean failed = false;
+
+        AnimatedTextureEntry(String cacheKey, byte[][] framePngData, int[] delays, int width, int height) {
+            this.cacheKey = cacheKey;
+            this.framePngData = framePngData;
             this.delays = delays;
             this.width = width;
             this.height = height;
@@ -363,44 +277,149 @@ public final class ImageTextureManager {
             int total = 0;
             for (int d : delays) total += d;
             this.totalDuration = total;
+            this.slots = new FrameSlot[Math.min(RING_SIZE, framePngData.length)];
+            for (int i = 0; i < slots.length; i++) slots[i] = new FrameSlot();
         }
 
         Identifier getCurrentFrameLocation() {
-            if (frameLocations.length == 0) return null;
-
-            if (totalDuration <= 0) return findNearestLoaded(0);
+            int frame = frameAt(System.currentTimeMillis() - startTime);
+            for (int i = 0; i < slots.length; i++) {
+                if (slots[i].frame == frame) shownSlot = i;
+            }
+            requestAhead(frame);
+            return shownSlot >= 0 ? slots[shownSlot].location : null;
+        }
 
-            long elapsed = System.currentTimeMillis() - startTime;
+        private int frameAt(long elapsed) {
+            if (totalDuration <= 0) return 0;
             long loopedTime = elapsed % totalDuration;
 
             int accumulator = 0;
-            for (int i = 0; i < frameLocations.length; i++) {
+            for (int i = 0; i < framePngData.length; i++) {
                 accumulator += delays[i];
-                if (loopedTime < accumulator) {
-                    return findNearestLoaded(i);
-                }
+                if (loopedTime < accumulator) return i;
             }
-
-            return findNearestLoaded(frameLocations.length - 1);
+            return framePngData.length - 1;
         }
 
         /**
-         * Returns the frame at the given index if loaded, otherwise falls back
-         * to the nearest previously loaded frame. This allows partial rendering
-         * while remaining frames are still being decoded asynchronously.
+         * Queues the frames from {@code frame} onwards that fit in the ring (one slot stays
+         * with the frame on screen), reusing slots whose frames have already played.
          */
-        private Identifier findNearestLoaded(int targetIndex) {
-            if (frameLocations[targetIndex] != null) return frameLocations[targetIndex];
+        private void requestAhead(int frame) {
+            if (released || failed) return;
+            int window = framePngData.length <= slots.length ? slots.length : slots.length - 1;
+            for (int offset = 0; offset < window; offset++) {
+                int wanted = (frame + offset) % framePngData.length;
+                if (isHeldOrPending(wanted)) continue;
+                int slot = freeSlot(frame, window);
+                if (slot < 0) return;
+                materialize(slot, wanted);
+            }
+        }
 
-            for (int i = targetIndex - 1; i >= 0; i--) {
-                if (frameLocations[i] != null) return frameLocations[i];
+        private boolean isHeldOrPending(int frame) {
+            for (FrameSlot slot : slots) {
+                if (slot.frame == frame || slot.pendingFrame == frame) return true;
             }
+            return false;
+        }
 
-            for (int i = targetIndex + 1; i < frameLocations.length; i++) {
-                if (frameLocations[i] != null) return frameLocations[i];
+        private int freeSlot(int windowStart, int window) {
+            int candidate = -1;
+            for (int i = 0; i < slots.length; i++) {
+                FrameSlot slot = slots[i];
+                if (slot.pendingFrame >= 0 || i == shownSlot) continue;
+                if (slot.texture == null) return i;
+                int distance = Math.floorMod(slot.frame - windowStart, framePngData.length);
+                if (distance >= window) candidate = i;
             }
+            return candidate;
+        }
 
-            return null;
+        private void materialize(int slotIndex, int frame) {
+            FrameSlot slot = slots[slotIndex];
+            slot.pendingFrame = frame;
+            byte[] pngData = framePngData[frame];
+            CompletableFuture.runAsync(() -> {
+                NativeImage image;
+                try {
+                    image = NativeImage.read(new ByteArrayInputStream(pngData));
+                } catch (Exception e) {
+                    CursedAddons.LOGGER.error("[ImageTextureManager] Failed to decode GIF frame " + frame + " for " + cacheKey + ": " + e.getMessage());
+                    Minecraft.getInstance().execute(() -> {
+                        slot.pendingFrame = -1;
+                        failed = true;
+                    });
+                    return;
+                }
+                Minecraft.getInstance().execute(() -> fill(slotIndex, frame, image));
+            }, ImageExecutors.decode());
         }
+
+        /**
+         * Puts a decoded frame into a slot, taking ownership of {@code image}. The first frame
+         * in a slot becomes its texture; later ones are copied over it and re-uploaded.
+         */
+        boolean fill(int slotIndex, int frame, NativeImage image) {
+            FrameSlot slot = slots[slotIndex];
+            slot.pendingFrame = -1;
+            if (released) {
+                image.close();
+                return false;
+            }
+            if (slot.texture == null) {
+                try {
+                    long id = textureIdCounter.getAndIncrement();
+                    Supplier<String> nameSupplier = () -> "cursedaddons_gif_" + id;
+                    DynamicTexture dynamicTexture = new DynamicTexture(nameSupplier, image);
+
+                    String path = "gif_frames/" + id;
+                    Identifier location = Identifier.fromNamespaceAndPath("cursedaddons", path);
+
+                    Minecraft.getInstance().getTextureManager().register(location, dynamicTexture);
+                    slot.texture = dynamicTexture;
+                    slot.location = location;
+                } catch (Exception e) {
+                    image.close();
+                    failed = true;
+                    CursedAddons.LOGGER.error("[ImageTextureManager] Failed to register GIF frame " + frame + " for " + cacheKey + ": " + e.getMessage());
+                    return false;
+                }
+            } else {
+                // Every frame has the same size and format, so the texture is reused as is
+                try {
+                    slot.texture.getPixels().copyFrom(image);
+                    slot.texture.upload();
+                } catch (Exception e) {
+                    failed = true;
+                    CursedAddons.LOGGER.error("[ImageTextureManager] Failed to upload GIF frame " + frame + " for " + cacheKey + ": " + e.getMessage());
+                    return false;
+                } finally {
+                    image.close();
+                }
+            }
+            slot.frame = frame;
+            if (shownSlot < 0) shownSlot = slotIndex;
+            return true;
+        }
+
+        void release() {
+            released = true;
+            var textureManager = Minecraft.getInstance().getTextureManager();
+            for (FrameSlot slot : slots) {
+                if (slot.location != null) {
+                    textureManager.release(slot.location);
+                }
+            }
+        }
+    }
+
+    private static class FrameSlot {
+        DynamicTexture texture;
+        Identifier location;
+        // Frame currently in the texture, and the frame being materialized into it
+        int frame = -1;
+        int pendingFrame = -1;
     }
 }
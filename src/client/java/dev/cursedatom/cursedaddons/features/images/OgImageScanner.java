@@ -0,0 +1,159 @@
+package dev.cursedatom.cursedaddons.features.images;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Incremental scanner for the preview image of an HTML page. Reads the body in chunks and
+ * inspects each {@code <meta>} tag as soon as it is complete, stopping at the first
+ * {@code og:image} / {@code twitter:image} tag or at the end of {@code <head>}, so the rest of
+ * the page is never downloaded. Works on raw bytes: only the matched attribute value is decoded.
+ */
+final class OgImageScanner {
+    private static final int CHUNK_BYTES = 4 * 1024;
+    private static final Set<String> IMAGE_PROPERTIES = Set.of(
+        "og:image", "og:image:url", "og:image:secure_url", "twitter:image", "twitter:image:src");
+
+    private OgImageScanner() {}
+
+    /**
+     * Returns the raw image URL from the first matching meta tag, or null if none appears
+     * before {@code </head>}, {@code <body>} or {@code maxBytes}.
+     */
+    static String scan(InputStream in, int maxBytes) throws IOException {
+        byte[] buffer = new byte[Math.min(CHUNK_BYTES, maxBytes)];
+        int length = 0;
+        int pos = 0;
+
+        while (true) {
+            // Consume every complete tag in the buffer
+            while (true) {
+                int tagStart = indexOf(buffer, length, (byte) '<', pos);
+                if (tagStart < 0) {
+                    pos = length;
+                    break;
+                }
+                if (startsWith(buffer, length, tagStart, "<!--")) {
+                    int end = indexOf(buffer, length, "-->", tagStart + 4);
+                    if (end < 0) {
+                        pos = tagStart;
+                        break;
+                    }
+                    pos = end + 3;
+                    continue;
+                }
+                int tagEnd = indexOf(buffer, length, (byte) '>', tagStart + 1);
+                if (tagEnd < 0) {
+                    pos = tagStart;
+                    break;
+                }
+                if (startsWithIgnoreCase(buffer, tagEnd, tagStart, "</head") || startsWithIgnoreCase(buffer, tagEnd, tagStart, "<body")) {
+                    return null;
+                }
+                if (startsWithIgnoreCase(buffer, tagEnd, tagStart, "<meta") && Character.isWhitespace((char) buffer[tagStart + 5])) {
+                    String image = imageFromMeta(buffer, tagStart, tagEnd);
+                    if (image != null) return image;
+                }
+                pos = tagEnd + 1;
+            }
+
+            if (length >= maxBytes) return null;
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, maxBytes));
+            }
+            int read = in.read(buffer, length, buffer.length - length);
+            if (read < 0) return null;
+            length += read;
+        }
+    }
+
+    private static String imageFromMeta(byte[] buffer, int start, int end) {
+        String tag = new String(buffer, start, end - start, StandardCharsets.UTF_8);
+        String key = attribute(tag, "property");
+        if (key == null) key = attribute(tag, "name");
+        if (key == null || !IMAGE_PROPERTIES.contains(key.toLowerCase(Locale.ROOT))) return null;
+        String content = attribute(tag, "content");
+        return content == null || content.isBlank() ? null : decodeEntities(content.trim());
+    }
+
+    /**
+     * Returns the value of a quoted or unquoted attribute, or null if absent.
+     */
+    private static String attribute(String tag, String name) {
+        String lower = tag.toLowerCase(Locale.ROOT);
+        int from = 0;
+        while (true) {
+            int index = lower.indexOf(name, from);
+            if (index < 0) return null;
+            from = index + name.length();
+            // Must be a whole attribute name, not the tail of another one
+            if (index > 0 && !Character.isWhitespace(lower.charAt(index - 1))) continue;
+            int i = from;
+            while (i < tag.length() && Character.isWhitespace(tag.charAt(i))) i++;
+            if (i >= tag.length() || tag.charAt(i) != '=') continue;
+            i++;
+            while (i < tag.length() && Character.isWhitespace(tag.charAt(i))) i++;
+            if (i >= tag.length()) return null;
+
+            char quote = tag.charAt(i);
+            if (quote == '"' || quote == '\'') {
+                int close = tag.indexOf(quote, i + 1);
+                return close < 0 ? null : tag.substring(i + 1, close);
+            }
+            int valueEnd = i;
+            while (valueEnd < tag.length() && !Character.isWhitespace(tag.charAt(valueEnd))
+                    && tag.charAt(valueEnd) != '/' && tag.charAt(valueEnd) != '>') {
+                valueEnd++;
+            }
+            return tag.substring(i, valueEnd);
+        }
+    }
+
+    // Entities that show up in image URLs; a full HTML entity table is not needed here
+    private static String decodeEntities(String value) {
+        if (value.indexOf('&') < 0) return value;
+        return value
+            .replace("&quot;", "\"")
+            .replace("&#39;", "'")
+            .replace("&#x27;", "'")
+            .replace("&#x2F;", "/")
+            .replace("&#47;", "/")
+            .replace("&lt;", "<")
+            .replace("&gt;", ">")
+            .replace("&amp;", "&");
+    }
+
+    private static int indexOf(byte[] buffer, int length, byte target, int from) {
+        for (int i = from; i < length; i++) {
+            if (buffer[i] == target) return i;
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] buffer, int length, String target, int from) {
+        for (int i = from; i + target.length() <= length; i++) {
+            if (startsWith(buffer, length, i, target)) return i;
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(byte[] buffer, int length, int offset, String prefix) {
+        if (offset + prefix.length() > length) return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (buffer[offset + i] != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static boolean startsWithIgnoreCase(byte[] buffer, int length, int offset, String prefix) {
+        if (offset + prefix.length() > length) return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (Character.toLowerCase((char) buffer[offset + i]) != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+}
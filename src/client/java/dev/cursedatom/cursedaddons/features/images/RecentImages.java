@@ -0,0 +1,217 @@
+package dev.cursedatom.cursedaddons.features.images;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import dev.cursedatom.cursedaddons.CursedAddons;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-server index of recently viewed previews (URL and size), stored as one small file per
+ * server under {@code recent/} in the image cache directory. On joining a server the
+ * previous session's working set is loaded back into {@link ImageCache} and
+ * {@link ImageTextureManager} in the background, so the first hovers after a reconnect hit.
+ *
+ * Warm-up runs at {@link ImageJobScheduler.Priority#WARMUP}, below prefetch and hover, at most
+ * {@code MAX_WARM_CONCURRENT} at once and one start per {@code WARM_INTERVAL_MS}. Bytes come
+ * from {@link ImageDiskCache} where present; network loads count against the background
+ * budgets in {@link ImagePrefetcher}. Nothing is persisted or warmed while the disk cache is off.
+ */
+public final class RecentImages {
+    private static final Path DIR = ImageDiskCache.CACHE_ROOT.resolve("recent");
+    private static final int MAX_ENTRIES = 64;
+    // Leaves room in ImageCache's LRU for live hovers during warm-up
+    private static final int MAX_WARM = ImageCache.MAX_CACHE_SIZE - 4;
+    private static final int MAX_WARM_CONCURRENT = 2;
+    private static final long WARM_INTERVAL_MS = 250;
+    private static final long SAVE_DELAY_MS = 5_000;
+    private static final Gson GSON = new Gson();
+
+    private static final Object lock = new Object();
+    // Access-ordered by cache key: iteration starts at the least recently viewed preview
+    private static final Map<String, View> views = new LinkedHashMap<>(32, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, View> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private static Path file;
+    // Bumped on every join/leave so a warm-up from an earlier session stops early
+    private static int session = 0;
+    private static boolean saveScheduled = false;
+
+    private RecentImages() {}
+
+    /**
+     * Switches to the index for {@code serverKey} (null if the server cannot be identified)
+     * and starts warming its previews.
+     */
+    public static void onJoin(String serverKey) {
+        int current;
+        synchronized (lock) {
+            views.clear();
+            file = serverKey == null ? null : DIR.resolve(ImageDiskCache.hashKey(serverKey) + ".json");
+            current = ++session;
+        }
+        if (serverKey == null || !ImageDiskCache.isEnabled()) return;
+        ImageExecutors.io().execute(() -> {
+            load(current);
+            warm(current);
+        });
+    }
+
+    /**
+     * Writes the index for the server being left.
+     */
+    public static void onDisconnect() {
+        Path path;
+        List<View> snapshot;
+        synchronized (lock) {
+            session++;
+            path = file;
+            snapshot = new ArrayList<>(views.values());
+            file = null;
+            views.clear();
+        }
+        ImageExecutors.io().execute(() -> write(path, snapshot));
+    }
+
+    /**
+     * Records a preview shown at its unshifted size. Called every frame while a loaded preview
+     * is hovered, so a repeat view only refreshes its position.
+     */
+    public static void recordView(String url, int maxWidth, int maxHeight) {
+        String cacheKey = ImageTextureManager.getCacheKey(url, maxWidth, maxHeight);
+        synchronized (lock) {
+            if (file == null || views.get(cacheKey) != null) return;
+            views.put(cacheKey, new View(url, maxWidth, maxHeight));
+        }
+        scheduleSave();
+    }
+
+    public static void clear() {
+        synchronized (lock) {
+            views.clear();
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(DIR)) {
+            for (Path path : files) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            // Missing directory: nothing recorded yet
+        }
+    }
+
+    private static void load(int expectedSession) {
+        Path path;
+        synchronized (lock) {
+            path = file;
+        }
+        if (path == null || !Files.exists(path)) return;
+        try {
+            List<View> stored = GSON.fromJson(Files.readString(path), new TypeToken<List<View>>() {}.getType());
+            if (stored == null) return;
+            synchronized (lock) {
+                if (session != expectedSession) return;
+                // Stored least recently viewed first; views made since joining stay the most recent
+                Map<String, View> current = new LinkedHashMap<>(views);
+                views.clear();
+                for (View view : stored) {
+                    if (view.url != null) views.put(ImageTextureManager.getCacheKey(view.url, view.maxWidth, view.maxHeight), view);
+                }
+                views.putAll(current);
+            }
+        } catch (Exception e) {
+            CursedAddons.LOGGER.warn("[RecentImages] Failed to load recently viewed images: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the {@code MAX_WARM} most recently viewed previews, oldest of them first, so the
+     * newest end up most recently used in {@link ImageCache}. Blocking — runs on {@link ImageExecutors#io()}.
+     */
+    private static void warm(int expectedSession) {
+        List<View> toWarm;
+        synchronized (lock) {
+            toWarm = new ArrayList<>(views.values());
+        }
+        if (toWarm.size() > MAX_WARM) toWarm = toWarm.subList(toWarm.size() - MAX_WARM, toWarm.size());
+
+        Semaphore slots = new Semaphore(MAX_WARM_CONCURRENT);
+        try {
+            for (View view : toWarm) {
+                slots.acquire();
+                synchronized (lock) {
+                    if (session != expectedSession) return;
+                }
+                if (!ImageHoverPreview.isEnabled() || !ImageHoverPreview.isWhitelisted(view.url)) {
+                    slots.release();
+                    continue;
+                }
+                String cacheKey = ImageTextureManager.getCacheKey(view.url, view.maxWidth, view.maxHeight);
+                if (ImageTextureManager.hasTextures(cacheKey)) {
+                    slots.release();
+                    continue;
+                }
+                ImageCache.loadImage(view.url, view.maxWidth, view.maxHeight, ImageJobScheduler.Priority.WARMUP)
+                    .thenAcceptAsync(result -> {
+                        if (result != null) {
+                            ImageTextureManager.prepareAndRegister(cacheKey, result);
+                        }
+                    }, ImageExecutors.decode())
+                    .whenComplete((ignored, error) -> slots.release());
+                Thread.sleep(WARM_INTERVAL_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Coalesces bursts of new views into one write after {@code SAVE_DELAY_MS}.
+     */
+    private static void scheduleSave() {
+        if (!ImageDiskCache.isEnabled()) return;
+        synchronized (lock) {
+            if (saveScheduled) return;
+            saveScheduled = true;
+        }
+        CompletableFuture.runAsync(RecentImages::save,
+            CompletableFuture.delayedExecutor(SAVE_DELAY_MS, TimeUnit.MILLISECONDS, ImageExecutors.io()));
+    }
+
+    private static void save() {
+        Path path;
+        List<View> snapshot;
+        synchronized (lock) {
+            saveScheduled = false;
+            path = file;
+            snapshot = new ArrayList<>(views.values());
+        }
+        write(path, snapshot);
+    }
+
+    private static void write(Path path, List<View> snapshot) {
+        if (path == null || snapshot.isEmpty() || !ImageDiskCache.isEnabled()) return;
+
+        try {
+            Files.createDirectories(DIR);
+            ImageDiskCache.writeAtomically(path, GSON.toJson(snapshot).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            CursedAddons.LOGGER.warn("[RecentImages] Failed to save recently viewed images: " + e.getMessage());
+        }
+    }
+
+    private record View(String url, int maxWidth, int maxHeight) {}
+}
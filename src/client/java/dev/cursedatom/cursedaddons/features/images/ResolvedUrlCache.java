@@ -0,0 +1,155 @@
+package dev.cursedatom.cursedaddons.features.images;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import dev.cursedatom.cursedaddons.CursedAddons;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded LRU of embed URL to direct image URL mappings for {@link UrlResolver}, persisted to
+ * {@code resolved_urls.json} in the image cache directory so pages scraped in one session
+ * resolve without a request in the next.
+ *
+ * Entries are dropped {@code MAX_AGE_MS} after they were resolved. Within that window a
+ * scraped mapping is fresh for at least {@code MIN_FRESHNESS_MS} whatever the page's own
+ * cache headers say: the image behind a Tenor or og:image page practically never changes,
+ * and those pages often send {@code no-cache}. Entries without validators are kept in
+ * memory only.
+ */
+final class ResolvedUrlCache {
+    private static final Path FILE = ImageDiskCache.CACHE_ROOT.resolve("resolved_urls.json");
+    private static final int MAX_ENTRIES = 1024;
+    private static final long MIN_FRESHNESS_MS = 24 * 60 * 60 * 1000L;
+    private static final long MAX_AGE_MS = 7 * 24 * 60 * 60 * 1000L;
+    private static final long SAVE_DELAY_MS = 5_000;
+    private static final Gson GSON = new Gson();
+
+    private static final Object lock = new Object();
+    // Access-ordered: iteration starts at the least recently used entry
+    private static final Map<String, StoredEntry> entries = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, StoredEntry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private static boolean loaded = false;
+    private static boolean saveScheduled = false;
+
+    private ResolvedUrlCache() {}
+
+    /**
+     * Returns the mapping for this URL, or null if there is none or it has aged out.
+     * Reads the file on first use — call from async thread.
+     */
+    static UrlResolver.ResolvedEntry get(String url) {
+        ensureLoaded();
+        synchronized (lock) {
+            StoredEntry stored = entries.get(url);
+            if (stored == null) return null;
+            if (System.currentTimeMillis() - stored.storedAt > MAX_AGE_MS) {
+                entries.remove(url);
+                return null;
+            }
+            return new UrlResolver.ResolvedEntry(stored.resolvedUrl, stored.validators);
+        }
+    }
+
+    static void put(String url, UrlResolver.ResolvedEntry entry) {
+        ensureLoaded();
+        CacheValidators validators = entry.validators();
+        long now = System.currentTimeMillis();
+        if (validators != null) {
+            validators = new CacheValidators(validators.etag(), validators.lastModified(),
+                Math.max(validators.expiresAt(), now + MIN_FRESHNESS_MS), validators.noStore());
+        }
+        synchronized (lock) {
+            // A revalidated mapping keeps its original age so it still ages out
+            StoredEntry previous = entries.get(url);
+            boolean unchanged = previous != null && previous.resolvedUrl.equals(entry.resolvedUrl());
+            entries.put(url, new StoredEntry(entry.resolvedUrl(), validators, unchanged ? previous.storedAt : now));
+        }
+        if (validators != null) {
+            scheduleSave();
+        }
+    }
+
+    static void clear() {
+        synchronized (lock) {
+            entries.clear();
+            loaded = true;
+        }
+        try {
+            Files.deleteIfExists(FILE);
+        } catch (IOException e) {
+            CursedAddons.LOGGER.warn("[UrlResolver] Failed to delete resolved URL cache: " + e.getMessage());
+        }
+    }
+
+    private static void ensureLoaded() {
+        synchronized (lock) {
+            if (loaded) return;
+            loaded = true;
+            if (!ImageDiskCache.isEnabled() || !Files.exists(FILE)) return;
+
+            try {
+                List<PersistedEntry> persisted = GSON.fromJson(Files.readString(FILE),
+                    new TypeToken<List<PersistedEntry>>() {}.getType());
+                if (persisted == null) return;
+                long now = System.currentTimeMillis();
+                // Stored least recently used first, so re-inserting restores the LRU order
+                for (PersistedEntry p : persisted) {
+                    if (p.url == null || p.resolvedUrl == null || now - p.storedAt > MAX_AGE_MS) continue;
+                    entries.put(p.url, new StoredEntry(p.resolvedUrl, p.validators, p.storedAt));
+                }
+            } catch (Exception e) {
+                CursedAddons.LOGGER.warn("[UrlResolver] Failed to load resolved URL cache: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Coalesces bursts of new mappings into one write after {@code SAVE_DELAY_MS}.
+     */
+    private static void scheduleSave() {
+        if (!ImageDiskCache.isEnabled()) return;
+        synchronized (lock) {
+            if (saveScheduled) return;
+            saveScheduled = true;
+        }
+        CompletableFuture.runAsync(ResolvedUrlCache::save,
+            CompletableFuture.delayedExecutor(SAVE_DELAY_MS, TimeUnit.MILLISECONDS, ImageExecutors.io()));
+    }
+
+    private static void save() {
+        List<PersistedEntry> snapshot = new ArrayList<>();
+        synchronized (lock) {
+            saveScheduled = false;
+            for (Map.Entry<String, StoredEntry> e : entries.entrySet()) {
+                StoredEntry stored = e.getValue();
+                if (stored.validators == null) continue;
+                snapshot.add(new PersistedEntry(e.getKey(), stored.resolvedUrl, stored.validators, stored.storedAt));
+            }
+        }
+
+        try {
+            Files.createDirectories(FILE.getParent());
+            ImageDiskCache.writeAtomically(FILE, GSON.toJson(snapshot).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            CursedAddons.LOGGER.warn("[UrlResolver] Failed to save resolved URL cache: " + e.getMessage());
+        }
+    }
+
+    private record StoredEntry(String resolvedUrl, CacheValidators validators, long storedAt) {}
+
+    private record PersistedEntry(String url, String resolvedUrl, CacheValidators validators, long storedAt) {}
+}
@@ -0,0 +1,84 @@
+package dev.cursedatom.cursedaddons.features.images;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps the many spellings of one image URL to a single key for caches, in-flight load
+ * coalescing, failure tracking and whitelist checks. Requests still go to the URL as posted.
+ *
+ * Rules: scheme and host are lower-cased, a default port is dropped, the fragment is removed,
+ * and common tracking parameters are stripped everywhere. Per-host rules strip parameters
+ * that change between links to the same file without changing its bytes, such as the
+ * rotating {@code ex}/{@code is}/{@code hm} signature on Discord attachments.
+ */
+public final class UrlCanonicalizer {
+    private static final String TRACKING_PREFIX = "utm_";
+    private static final Set<String> TRACKING_PARAMS = Set.of(
+        "fbclid", "gclid", "dclid", "msclkid", "igshid", "mc_cid", "mc_eid");
+    private static final Set<String> DISCORD_SIGNATURE = Set.of("ex", "is", "hm");
+    private static final Map<String, Set<String>> HOST_PARAMS = Map.of(
+        "cdn.discordapp.com", DISCORD_SIGNATURE,
+        "media.discordapp.net", DISCORD_SIGNATURE
+    );
+
+    private UrlCanonicalizer() {}
+
+    /**
+     * Returns the canonical form of {@code url}, or {@code url} itself if it is already
+     * canonical or not an absolute http(s) URL.
+     */
+    public static String canonicalize(String url) {
+        if (url == null) return null;
+        int schemeEnd = url.indexOf("://");
+        if (schemeEnd < 0) return url;
+        String scheme = url.substring(0, schemeEnd).toLowerCase(Locale.ROOT);
+        if (!scheme.equals("http") && !scheme.equals("https")) return url;
+
+        int authorityStart = schemeEnd + 3;
+        int authorityEnd = authorityStart;
+        while (authorityEnd < url.length() && "/?#".indexOf(url.charAt(authorityEnd)) < 0) {
+            authorityEnd++;
+        }
+        // User info is case-sensitive; only the host and port after it are normalised
+        int hostStart = url.lastIndexOf('@', authorityEnd - 1) + 1;
+        if (hostStart <= authorityStart) hostStart = authorityStart;
+        String hostAndPort = url.substring(hostStart, authorityEnd).toLowerCase(Locale.ROOT);
+        String defaultPort = scheme.equals("https") ? ":443" : ":80";
+        if (hostAndPort.endsWith(defaultPort)) {
+            hostAndPort = hostAndPort.substring(0, hostAndPort.length() - defaultPort.length());
+        }
+        int portStart = hostAndPort.lastIndexOf(':');
+        String host = portStart > hostAndPort.lastIndexOf(']') ? hostAndPort.substring(0, portStart) : hostAndPort;
+
+        int fragment = url.indexOf('#', authorityEnd);
+        int end = fragment < 0 ? url.length() : fragment;
+        int queryStart = url.indexOf('?', authorityEnd);
+        if (queryStart >= end) queryStart = -1;
+
+        StringBuilder result = new StringBuilder(url.length());
+        result.append(scheme).append("://").append(url, authorityStart, hostStart).append(hostAndPort);
+        if (queryStart < 0) {
+            result.append(url, authorityEnd, end);
+        } else {
+            result.append(url, authorityEnd, queryStart);
+            appendQuery(result, url.substring(queryStart + 1, end), HOST_PARAMS.getOrDefault(host, Set.of()));
+        }
+        return result.length() == url.length() && result.toString().equals(url) ? url : result.toString();
+    }
+
+    private static void appendQuery(StringBuilder result, String query, Set<String> hostParams) {
+        boolean first = true;
+        for (String param : query.split("&")) {
+            if (param.isEmpty()) continue;
+            int eq = param.indexOf('=');
+            String name = (eq < 0 ? param : param.substring(0, eq)).toLowerCase(Locale.ROOT);
+            if (name.startsWith(TRACKING_PREFIX) || TRACKING_PARAMS.contains(name) || hostParams.contains(name)) {
+                continue;
+            }
+            result.append(first ? '?' : '&').append(param);
+            first = false;
+        }
+    }
+}
@@ -1,225 +1,432 @@
 package dev.cursedatom.cursedaddons.features.images;
 
 import dev.cursedatom.cursedaddons.CursedAddons;
+import dev.cursedatom.cursedaddons.api.images.v1.ImageResolver;
 
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.InetAddress;
-import java.net.URI;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Resolves platform embed URLs (e.g. imgur.com/abc, tenor.com/view/...)
  * to direct image URLs that can be loaded by ImageCache.
+ * Resolved mappings are kept in {@link ResolvedUrlCache}, which survives restarts.
  */
 public final class UrlResolver {
-    private static final int CONNECT_TIMEOUT_MS = 5_000;
     private static final int READ_TIMEOUT_MS = 5_000;
-    private static final int MAX_HTML_BYTES = 32 * 1024; // 32 KB
+    // Scanning stops at the image meta tag or </head>, so this only bounds unusually large heads
+    private static final int MAX_HTML_BYTES = 128 * 1024; // 128 KB
     private static final long FAILURE_COOLDOWN_MS = 60_000;
-    private static final int MAX_REDIRECTS = 5;
-
-    private static final ConcurrentHashMap<String, String> resolvedCache = new ConcurrentHashMap<>();
-    private static final ConcurrentHashMap<String, Long> failedCache = new ConcurrentHashMap<>();
-
-    private static final Pattern OG_IMAGE_PATTERN = Pattern.compile(
-        "<meta[^>]+property\\s*=\\s*[\"']og:image[\"'][^>]+content\\s*=\\s*[\"']([^\"']+)[\"']",
-        Pattern.CASE_INSENSITIVE
-    );
-    private static final Pattern OG_IMAGE_PATTERN_ALT = Pattern.compile(
-        "<meta[^>]+content\\s*=\\s*[\"']([^\"']+)[\"'][^>]+property\\s*=\\s*[\"']og:image[\"']",
-        Pattern.CASE_INSENSITIVE
-    );
-
-    private static final List<PlatformResolver> RESOLVERS = List.of(
-        new ImgurResolver(),
-        new GiphyResolver(),
-        new TenorResolver(),
-        new GenericOgImageResolver()
-    );
+    private static final int MAX_FAILURE_ENTRIES = 256;
+    private static final int SNIFF_BYTES = 32;
+    // Images are accepted too, so a direct image link needs no second request
+    private static final String PAGE_ACCEPT = "text/html,image/*;q=0.9";
+    private static final long EXTENSION_TIMEOUT_MS = 10_000;
+
+    private static final FailureCache failedCache = new FailureCache(MAX_FAILURE_ENTRIES, FAILURE_COOLDOWN_MS);
+
+    // Platform resolvers indexed by every host they declare; looked up by host suffix
+    private static final Map<String, PlatformResolver> RESOLVERS_BY_HOST = new ConcurrentHashMap<>();
+    // Tried when no platform resolver claims the URL
+    private static final PlatformResolver FALLBACK_RESOLVER = new GenericOgImageResolver();
+
+    static {
+        for (PlatformResolver resolver : List.of(new ImgurResolver(), new GiphyResolver(), new TenorResolver(),
+                new TenorMediaResolver(), new RedditResolver(), new DiscordResolver(), new GyazoResolver())) {
+            for (String host : resolver.hosts()) {
+                RESOLVERS_BY_HOST.put(host, resolver);
+            }
+        }
+    }
 
     private UrlResolver() {}
 
+    /**
+     * Adds a resolver contributed through the public API. It takes over its hosts from any
+     * resolver registered for them before, built-ins included.
+     */
+    public static void register(ImageResolver resolver) {
+        PlatformResolver adapter = new ExtensionResolver(resolver);
+        for (String host : resolver.hosts()) {
+            PlatformResolver previous = RESOLVERS_BY_HOST.put(host.toLowerCase(Locale.ROOT), adapter);
+            if (previous != null) {
+                CursedAddons.LOGGER.warn("[UrlResolver] " + resolver.getClass().getName() + " replaces the resolver for " + host);
+            }
+        }
+    }
+
     /**
      * Returns true if any resolver can handle this URL.
      */
     public static boolean isResolvable(String url) {
-        if (url == null) return false;
-        for (PlatformResolver resolver : RESOLVERS) {
-            if (resolver.matches(url)) return true;
+        return url != null && findResolver(url) != null;
+    }
+
+    /**
+     * Returns true if the URL maps to a direct image URL by a pure string rewrite. Such URLs
+     * go through {@link #resolve} even when they already look like direct image links.
+     */
+    public static boolean isRewritable(String url) {
+        return url != null && findResolver(url) instanceof RewriteResolver;
+    }
+
+    /**
+     * Finds the resolver for a URL with one hash lookup per host label ({@code a.b.tenor.com},
+     * then {@code b.tenor.com}, then {@code tenor.com}, ...), so only the owning platform's
+     * path pattern is run. Falls back to og:image scraping if that pattern does not match.
+     */
+    private static PlatformResolver findResolver(String url) {
+        String host = extractHost(url);
+        if (host != null) {
+            for (String suffix = host; suffix != null; suffix = parentDomain(suffix)) {
+                PlatformResolver resolver = RESOLVERS_BY_HOST.get(suffix);
+                if (resolver != null) {
+                    if (resolver.matches(url)) return resolver;
+                    break;
+                }
+            }
         }
-        return false;
+        return FALLBACK_RESOLVER.matches(url) ? FALLBACK_RESOLVER : null;
+    }
+
+    /**
+     * Lower-cased host of an http(s) URL without full URI parsing, which is too slow for
+     * per-frame hover checks. Returns null if the URL has no authority.
+     */
+    private static String extractHost(String url) {
+        int start = url.indexOf("://");
+        if (start < 0) return null;
+        start += 3;
+        int end = start;
+        while (end < url.length()) {
+            char c = url.charAt(end);
+            if (c == '/' || c == '?' || c == '#' || c == ':') break;
+            end++;
+        }
+        int userInfo = url.lastIndexOf('@', end - 1);
+        if (userInfo >= start) start = userInfo + 1;
+        return end > start ? url.substring(start, end).toLowerCase(Locale.ROOT) : null;
+    }
+
+    private static String parentDomain(String host) {
+        int dot = host.indexOf('.');
+        return dot >= 0 ? host.substring(dot + 1) : null;
     }
 
     /**
      * Resolves a platform URL to a direct image URL.
      * May make HTTP requests — call from async thread only.
      *
-     * @return direct image URL, or null if resolution failed
+     * @return the direct image URL, plus the image itself if the URL turned out to serve one
+     * @throws Exception with the reason resolution failed, or why the URL is still backing off from an earlier failure
      */
-    public static String resolve(String url) {
-        if (url == null) return null;
-
-        String cached = resolvedCache.get(url);
-        if (cached != null) return cached;
+    public static Resolution resolve(String url, ImageJobScheduler.Job job) throws Exception {
+        // Mappings are keyed by the canonical URL; the resolver itself sees the URL as posted
+        String key = UrlCanonicalizer.canonicalize(url);
+        ResolvedEntry cached = ResolvedUrlCache.get(key);
+        if (cached != null && (cached.validators == null || cached.validators.isFresh())) {
+            return new Resolution(cached.resolvedUrl, null, null);
+        }
 
-        Long failedAt = failedCache.get(url);
-        if (failedAt != null && System.currentTimeMillis() - failedAt < FAILURE_COOLDOWN_MS) {
-            return null;
+        String blockedReason = failedCache.getBlockedReason(key);
+        if (blockedReason != null) {
+            // Backing off from a failing revalidation: keep serving the stale mapping meanwhile
+            if (cached != null) return new Resolution(cached.resolvedUrl, null, null);
+            throw new FetchException(blockedReason, false);
         }
 
-        for (PlatformResolver resolver : RESOLVERS) {
-            if (resolver.matches(url)) {
-                try {
-                    String resolved = resolver.resolve(url);
-                    if (resolved != null) {
-                        resolvedCache.put(url, resolved);
-                        failedCache.remove(url);
-                        return resolved;
+        Exception failure = new FetchException("No resolver for URL", true);
+        PlatformResolver resolver = findResolver(url);
+        if (resolver != null) {
+            try {
+                ResolvedEntry resolved = resolver.resolve(url, cached, job);
+                if (resolved != null) {
+                    // Rewrites are recomputed instead: a cached one would keep the first variant's
+                    // query (e.g. an expired Discord signature) for every later variant
+                    if (!(resolver instanceof RewriteResolver)) {
+                        ResolvedUrlCache.put(key, resolved);
                     }
-                } catch (Exception e) {
-                    CursedAddons.LOGGER.error("[UrlResolver] Failed to resolve " + url + ": " + e.getMessage());
+                    failedCache.recordSuccess(key);
+                    return new Resolution(resolved.resolvedUrl, resolved.imageData, resolved.validators);
                 }
-                break; // Only try the first matching resolver (GenericOg is last and matches anything)
+                failure = new FetchException("No embedded image found", true);
+            } catch (Exception e) {
+                CursedAddons.LOGGER.error("[UrlResolver] Failed to resolve " + url + ": " + e.getMessage());
+                // Revalidation failed (e.g. host unreachable): keep serving the stale mapping
+                if (cached != null) return new Resolution(cached.resolvedUrl, null, null);
+                failure = e;
             }
         }
 
-        failedCache.put(url, System.currentTimeMillis());
-        return null;
+        failedCache.recordFailure(key, failure);
+        throw failure;
     }
 
     public static void clearCache() {
-        resolvedCache.clear();
+        ResolvedUrlCache.clear();
         failedCache.clear();
     }
 
-    private static String fetchOgImage(String url) throws Exception {
-        URI uri = new URI(url);
-
-        for (int redirectCount = 0; redirectCount <= MAX_REDIRECTS; redirectCount++) {
-            // SSRF check before opening any connection to this host
-            InetAddress address = InetAddress.getByName(uri.toURL().getHost());
-            if (address.isLoopbackAddress() || address.isSiteLocalAddress() || address.isLinkLocalAddress()) {
-                throw new Exception("Connection to private/loopback addresses is not allowed");
+    /**
+     * Fetches the page and extracts its og:image (or twitter:image) URL with {@link OgImageScanner},
+     * closing the connection as soon as the tag is found. If {@code previous} carries validators,
+     * a conditional GET is sent and a 304 reuses the previously resolved URL.
+     *
+     * The request accepts images as well as HTML, so an extensionless link that serves an image
+     * directly is read on the same connection and resolves to itself, with the body attached.
+     */
+    private static ResolvedEntry fetchOgImage(String url, ResolvedEntry previous) throws Exception {
+        CacheValidators conditional = (previous != null && previous.validators != null
+            && previous.validators.canRevalidate()) ? previous.validators : null;
+        HttpFetcher.Request request = HttpFetcher.Request.get(url, PAGE_ACCEPT, Duration.ofMillis(READ_TIMEOUT_MS))
+            .withConditional(conditional)
+            .withMaxBytes(ImageCache.getMaxContentLength())
+            .withGzip();
+
+        try (HttpFetcher.Response response = HttpFetcher.fetch(request)) {
+            if (response.isNotModified()) {
+                return new ResolvedEntry(previous.resolvedUrl, conditional.updatedBy(response.validators()));
             }
 
-            HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
-            try {
-                connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
-                connection.setReadTimeout(READ_TIMEOUT_MS);
-                connection.setInstanceFollowRedirects(false);
-                connection.setRequestProperty("Accept", "text/html");
-                connection.setRequestProperty("User-Agent", "Mozilla/5.0 (compatible; ImagePreview/1.0)");
-                connection.connect();
-
-                int responseCode = connection.getResponseCode();
-
-                if (responseCode >= 300 && responseCode < 400) {
-                    String location = connection.getHeaderField("Location");
-                    if (location == null) throw new Exception("Redirect with no Location header");
-                    uri = uri.resolve(location);
-                    String scheme = uri.getScheme();
-                    if (!"http".equals(scheme) && !"https".equals(scheme)) {
-                        throw new Exception("Redirect to non-HTTP scheme blocked: " + scheme);
-                    }
-                    continue;
-                }
-
-                if (responseCode != 200) {
-                    throw new Exception("HTTP " + responseCode);
-                }
-
-                try (InputStream stream = connection.getInputStream()) {
-                    byte[] buffer = new byte[MAX_HTML_BYTES];
-                    int totalRead = 0;
-                    int bytesRead;
-                    while (totalRead < MAX_HTML_BYTES && (bytesRead = stream.read(buffer, totalRead, MAX_HTML_BYTES - totalRead)) != -1) {
-                        totalRead += bytesRead;
-                    }
-
-                    String html = new String(buffer, 0, totalRead, StandardCharsets.UTF_8);
-
-                    Matcher matcher = OG_IMAGE_PATTERN.matcher(html);
-                    if (matcher.find()) {
-                        return uri.resolve(matcher.group(1)).toString();
-                    }
-
-                    matcher = OG_IMAGE_PATTERN_ALT.matcher(html);
-                    if (matcher.find()) {
-                        return uri.resolve(matcher.group(1)).toString();
-                    }
-                }
+            InputStream body = new BufferedInputStream(response.body());
+            if (servesImage(response.header("Content-Type"), body)) {
+                return new ResolvedEntry(response.uri().toString(), response.validators(), ImageProbe.readChecked(body));
+            }
 
+            String image = OgImageScanner.scan(body, MAX_HTML_BYTES);
+            if (image == null) {
                 return null;
-            } finally {
-                connection.disconnect();
             }
+            // Relative og:image paths resolve against the final URI after redirects
+            return new ResolvedEntry(response.uri().resolve(image).toString(), response.validators());
         }
+    }
+
+    /**
+     * True if the response is an image: by {@code Content-Type}, or for untyped and
+     * {@code application/octet-stream} responses by sniffing the first bytes.
+     */
+    private static boolean servesImage(String contentType, InputStream body) throws IOException {
+        String type = contentType != null ? contentType.toLowerCase(Locale.ROOT).trim() : "";
+        if (type.startsWith("image/")) return true;
+        if (!type.isEmpty() && !type.startsWith("application/octet-stream")) return false;
+
+        body.mark(SNIFF_BYTES);
+        byte[] head = body.readNBytes(SNIFF_BYTES);
+        body.reset();
+        return ImageProbe.probe(head, head.length) != null;
+    }
 
-        throw new Exception("Too many redirects");
+    /**
+     * Result of {@link #resolve}. {@code imageData} is non-null when the URL itself served
+     * an image during resolution; {@code validators} then describe that image.
+     */
+    public record Resolution(String url, byte[] imageData, CacheValidators validators) {}
+
+    /**
+     * A resolved direct image URL. {@code validators} is null for pure URL rewrites,
+     * otherwise it holds the freshness of the page the URL was scraped from.
+     * {@code imageData} is only set on a fresh resolution and never cached.
+     */
+    record ResolvedEntry(String resolvedUrl, CacheValidators validators, byte[] imageData) {
+        ResolvedEntry(String resolvedUrl, CacheValidators validators) {
+            this(resolvedUrl, validators, null);
+        }
     }
 
     private interface PlatformResolver {
+        /**
+         * Hosts this resolver owns; subdomains are matched too. Empty for the fallback resolver.
+         */
+        default List<String> hosts() {
+            return List.of();
+        }
+
         boolean matches(String url);
-        String resolve(String url) throws Exception;
+
+        /**
+         * @param previous the stale cached entry for this URL, if any, for conditional revalidation
+         * @param job      the image load this resolution belongs to; long waits register with it
+         *                 so cancelling the load interrupts them
+         */
+        ResolvedEntry resolve(String url, ResolvedEntry previous, ImageJobScheduler.Job job) throws Exception;
     }
 
     /**
-     * Imgur: rewrites imgur.com/{id} to i.imgur.com/{id}.jpg
-     * No HTTP request needed.
+     * Resolver that derives the direct media URL from the link itself with a list of
+     * pattern rules. No HTTP request needed.
      */
-    private static class ImgurResolver implements PlatformResolver {
-        private static final Pattern IMGUR_PATTERN = Pattern.compile(
-            "^https?://(?:www\\.)?imgur\\.com/([a-zA-Z0-9]+)$"
-        );
+    private abstract static class RewriteResolver implements PlatformResolver {
+        private final List<String> hosts;
+        private final List<Rule> rules;
+
+        RewriteResolver(List<String> hosts, Rule... rules) {
+            this.hosts = hosts;
+            this.rules = List.of(rules);
+        }
+
+        @Override
+        public List<String> hosts() {
+            return hosts;
+        }
 
         @Override
         public boolean matches(String url) {
-            return IMGUR_PATTERN.matcher(url).find();
+            for (Rule rule : rules) {
+                if (rule.pattern.matcher(url).find()) return true;
+            }
+            return false;
         }
 
         @Override
-        public String resolve(String url) {
-            Matcher matcher = IMGUR_PATTERN.matcher(url);
-            if (matcher.find()) {
-                String id = matcher.group(1);
-                // "a" and "gallery" are album path segments, not image IDs — skip them
-                if ("a".equals(id) || "gallery".equals(id)) return null;
-                return "https://i.imgur.com/" + id + ".jpg";
+        public ResolvedEntry resolve(String url, ResolvedEntry previous, ImageJobScheduler.Job job) {
+            for (Rule rule : rules) {
+                Matcher matcher = rule.pattern.matcher(url);
+                if (matcher.find()) {
+                    String direct = rule.rewrite.apply(matcher);
+                    return direct == null ? null : new ResolvedEntry(direct, null);
+                }
             }
             return null;
         }
+
+        /**
+         * Rewrites a matched link; returns null if the match carries no usable image.
+         */
+        record Rule(Pattern pattern, Function<Matcher, String> rewrite) {
+            static Rule of(String regex, Function<Matcher, String> rewrite) {
+                return new Rule(Pattern.compile(regex), rewrite);
+            }
+        }
     }
 
     /**
-     * Giphy: rewrites giphy.com/gifs/{optional-slug-}{id} to media.giphy.com/media/{id}/giphy.gif
-     * No HTTP request needed.
+     * Imgur: rewrites imgur.com/{id} to i.imgur.com/{id}.jpg, and i.imgur.com/{id}.gifv
+     * (an MP4 wrapper page) to i.imgur.com/{id}.gif.
+     * Albums (imgur.com/a/{id}) name the album, not an image, so they are left to og:image.
      */
-    private static class GiphyResolver implements PlatformResolver {
-        private static final Pattern GIPHY_PATTERN = Pattern.compile(
-            "^https?://(?:www\\.)?giphy\\.com/gifs/(?:.*-)?([a-zA-Z0-9]+)$"
-        );
+    private static class ImgurResolver extends RewriteResolver {
+        ImgurResolver() {
+            super(List.of("imgur.com"),
+                Rule.of("^https?://(?:www\\.|m\\.)?imgur\\.com/([a-zA-Z0-9]+)$", m -> {
+                    String id = m.group(1);
+                    // "a" and "gallery" are album path segments, not image IDs — skip them
+                    if ("a".equals(id) || "gallery".equals(id)) return null;
+                    return "https://i.imgur.com/" + id + ".jpg";
+                }),
+                Rule.of("^https?://i\\.imgur\\.com/([a-zA-Z0-9]+)\\.(?:gifv|mp4)(?:[?#].*)?$",
+                    m -> "https://i.imgur.com/" + m.group(1) + ".gif"));
+        }
+    }
 
-        @Override
-        public boolean matches(String url) {
-            return GIPHY_PATTERN.matcher(url).find();
+    /**
+     * Giphy: rewrites page, sticker and embed links, and the MP4/WebP renditions on the media
+     * hosts, to media.giphy.com/media/{id}/giphy.gif.
+     */
+    private static class GiphyResolver extends RewriteResolver {
+        GiphyResolver() {
+            super(List.of("giphy.com"),
+                Rule.of("^https?://(?:www\\.)?giphy\\.com/(?:gifs|stickers)/(?:.*-)?([a-zA-Z0-9]+)/?(?:[?#].*)?$",
+                    m -> gif(m.group(1))),
+                Rule.of("^https?://(?:www\\.)?giphy\\.com/embed/([a-zA-Z0-9]+)",
+                    m -> gif(m.group(1))),
+                Rule.of("^https?://(?:media\\d*|i)\\.giphy\\.com/media/(?:v1\\.[^/]+/)?([a-zA-Z0-9]+)/[^/?#]+\\.(?:mp4|webp)(?:[?#].*)?$",
+                    m -> gif(m.group(1))),
+                Rule.of("^https?://i\\.giphy\\.com/([a-zA-Z0-9]+)\\.(?:mp4|webp)(?:[?#].*)?$",
+                    m -> gif(m.group(1))));
         }
 
-        @Override
-        public String resolve(String url) {
-            Matcher matcher = GIPHY_PATTERN.matcher(url);
-            if (matcher.find()) {
-                String id = matcher.group(1);
-                return "https://media.giphy.com/media/" + id + "/giphy.gif";
+        private static String gif(String id) {
+            return "https://media.giphy.com/media/" + id + "/giphy.gif";
+        }
+    }
+
+    /**
+     * Tenor media: a rendition's ID is an 11-character media ID plus a 5-character format
+     * code, so MP4/WebM links are rewritten to the GIF rendition ({@code AAAAC}).
+     */
+    private static class TenorMediaResolver extends RewriteResolver {
+        TenorMediaResolver() {
+            super(List.of("media.tenor.com", "c.tenor.com"),
+                Rule.of("^https?://(?:media|c)\\.tenor\\.com/([a-zA-Z0-9_-]{11})AAA[a-zA-Z0-9]{2}/([^/?#]+)\\.(?:mp4|webm)(?:[?#].*)?$",
+                    m -> "https://media.tenor.com/" + m.group(1) + "AAAAC/" + m.group(2) + ".gif"));
+        }
+    }
+
+    /**
+     * Reddit: rewrites preview.redd.it thumbnails to the original on i.redd.it, and unwraps
+     * reddit.com/media?url=... viewer links. external-preview.redd.it is a signed proxy for
+     * third-party images and is loaded as posted.
+     */
+    private static class RedditResolver extends RewriteResolver {
+        RedditResolver() {
+            super(List.of("reddit.com", "redd.it"),
+                // New-style names carry a title slug: {title}-v0-{id}.{ext}
+                Rule.of("^https?://preview\\.redd\\.it/(?:[^/?#]*-v0-)?([a-zA-Z0-9]+\\.(?:png|jpe?g|gif|webp))(?:[?#].*)?$",
+                    m -> "https://i.redd.it/" + m.group(1)),
+                Rule.of("^https?://(?:www\\.|old\\.|new\\.)?reddit\\.com/media\\?(?:[^#]*&)?url=([^&#]+)", m -> {
+                    String target = URLDecoder.decode(m.group(1), StandardCharsets.UTF_8);
+                    return target.startsWith("https://") || target.startsWith("http://") ? target : null;
+                }));
+        }
+    }
+
+    /**
+     * Discord: media.discordapp.net re-encodes attachments on the fly (often to WebP at the
+     * size the client asked for), so links to it are rewritten to the original on
+     * cdn.discordapp.com, keeping only the {@code ex}/{@code is}/{@code hm} signature.
+     * images-ext proxy links are left alone: unwrapping them would contact the original
+     * host, which the whitelist may not allow.
+     */
+    private static class DiscordResolver extends RewriteResolver {
+        private static final Set<String> SIGNATURE_PARAMS = Set.of("ex", "is", "hm");
+
+        DiscordResolver() {
+            super(List.of("media.discordapp.net"),
+                Rule.of("^https?://media\\.discordapp\\.net/(attachments/[^?#]+?\\.(?:png|jpe?g|gif|webp))(?:\\?([^#]*))?",
+                    m -> "https://cdn.discordapp.com/" + m.group(1) + signature(m.group(2))));
+        }
+
+        private static String signature(String query) {
+            if (query == null) return "";
+            StringBuilder kept = new StringBuilder();
+            for (String param : query.split("&")) {
+                int eq = param.indexOf('=');
+                if (SIGNATURE_PARAMS.contains(eq < 0 ? param : param.substring(0, eq))) {
+                    kept.append(kept.isEmpty() ? '?' : '&').append(param);
+                }
             }
-            return null;
+            return kept.toString();
         }
     }
 
+    /**
+     * Gyazo: rewrites gyazo.com/{hash} to i.gyazo.com/{hash}.png. The image host serves the
+     * capture under that name whatever its format, and decoders sniff the bytes anyway.
+     */
+    private static class GyazoResolver extends RewriteResolver {
+        GyazoResolver() {
+            super(List.of("gyazo.com"),
+                Rule.of("^https?://(?:www\\.)?gyazo\\.com/([0-9a-f]{32})/?(?:[?#].*)?$",
+                    m -> "https://i.gyazo.com/" + m.group(1) + ".png"));
+        }
+    }
     /**
      * Tenor: fetches page HTML and extracts og:image.
      */
@@ -228,20 +435,101 @@ public final class UrlResolver {
             "^https?://(?:www\\.)?tenor\\.com/view/.+"
         );
 
+        @Override
+        public List<String> hosts() {
+            return List.of("tenor.com");
+        }
+
         @Override
         public boolean matches(String url) {
             return TENOR_PATTERN.matcher(url).find();
         }
 
         @Override
-        public String resolve(String url) throws Exception {
-            return fetchOgImage(url);
+        public ResolvedEntry resolve(String url, ResolvedEntry previous, ImageJobScheduler.Job job) throws Exception {
+            return fetchOgImage(url, previous);
+        }
+    }
+
+    /**
+     * Adapts an {@link ImageResolver} from another mod. The call holds a rate-limit permit for
+     * the link's host, and the result is cached like a scraped page (persisted, fresh for a
+     * day) since the resolver may well have made requests of its own.
+     */
+    private static class ExtensionResolver implements PlatformResolver {
+        private final ImageResolver delegate;
+        private final List<String> hosts;
+
+        ExtensionResolver(ImageResolver delegate) {
+            this.delegate = delegate;
+            this.hosts = List.copyOf(delegate.hosts());
+        }
+
+        @Override
+        public List<String> hosts() {
+            return hosts;
+        }
+
+        @Override
+        public boolean matches(String url) {
+            try {
+                return delegate.matches(url);
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public ResolvedEntry resolve(String url, ResolvedEntry previous, ImageJobScheduler.Job job) throws Exception {
+            HostLimiter.Permit permit = awaitPermit(extractHost(url), job);
+            CompletableFuture<String> future = null;
+            Closeable abortResolve = null;
+            try {
+                future = delegate.resolve(url);
+                CompletableFuture<String> pending = future;
+                abortResolve = () -> pending.cancel(true);
+                job.register(abortResolve);
+                String direct = future.get(EXTENSION_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (direct == null) return null;
+                if (!direct.startsWith("https://") && !direct.startsWith("http://")) {
+                    throw new FetchException("Resolver returned a non-HTTP URL", true);
+                }
+                // No validators of its own: the cache gives it the minimum freshness
+                return new ResolvedEntry(direct, new CacheValidators(null, null, 0, false));
+            } catch (TimeoutException e) {
+                throw new FetchException("Resolver timed out", false);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof Exception ? (Exception) cause : e;
+            } finally {
+                if (abortResolve != null) job.unregister(abortResolve);
+                if (future != null) future.cancel(true);
+                permit.release();
+            }
+        }
+
+        /**
+         * Waits up to {@code EXTENSION_TIMEOUT_MS} for a rate-limit permit. Cancelling the job
+         * withdraws the request, so an abandoned hover stops waiting in line.
+         */
+        private static HostLimiter.Permit awaitPermit(String host, ImageJobScheduler.Job job) throws Exception {
+            CompletableFuture<HostLimiter.Permit> pending = HostLimiter.acquire(host);
+            Closeable abortWait = () -> pending.cancel(true);
+            job.register(abortWait);
+            try {
+                return pending.get(EXTENSION_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                pending.cancel(true);
+                throw new FetchException("Resolver timed out waiting for " + host, false);
+            } finally {
+                job.unregister(abortWait);
+            }
         }
     }
 
     /**
      * Generic fallback: for any URL without an image extension, tries og:image scraping.
-     * Only tried after all specific resolvers fail to match.
+     * Only tried when no platform resolver owns the host or its pattern does not match.
      */
     private static class GenericOgImageResolver implements PlatformResolver {
         @Override
@@ -251,8 +539,8 @@ public final class UrlResolver {
         }
 
         @Override
-        public String resolve(String url) throws Exception {
-            return fetchOgImage(url);
+        public ResolvedEntry resolve(String url, ResolvedEntry previous, ImageJobScheduler.Job job) throws Exception {
+            return fetchOgImage(url, previous);
         }
     }
 }
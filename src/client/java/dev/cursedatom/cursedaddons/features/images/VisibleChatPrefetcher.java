@@ -0,0 +1,97 @@
+package dev.cursedatom.cursedaddons.features.images;
+
+import dev.cursedatom.cursedaddons.config.ConfigKeys;
+import dev.cursedatom.cursedaddons.mixin.client.ChatComponentAccessor;
+import dev.cursedatom.cursedaddons.utils.ConfigProvider;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.components.ChatComponent;
+import net.minecraft.client.gui.screens.ChatScreen;
+import net.minecraft.client.multiplayer.chat.GuiMessage;
+import net.minecraft.network.chat.ClickEvent;
+import net.minecraft.network.chat.Style;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Queues image links on the chat lines currently on screen with {@link ImagePrefetcher} when
+ * the chat screen opens and whenever the visible page changes (scrolling, a new message, a
+ * resize). Unlike prefetching on arrival, the cost is bounded by the lines on one page, not by
+ * how fast chat is moving.
+ */
+public final class VisibleChatPrefetcher {
+    // The page last walked; nothing is queued again until one of these changes
+    private static GuiMessage.Line lastBottomLine;
+    private static int lastScrollPos = -1;
+    private static int lastLinesPerPage = -1;
+    private static int lastGuiWidth = -1;
+    private static int lastGuiHeight = -1;
+
+    private VisibleChatPrefetcher() {}
+
+    public static boolean isEnabled() {
+        return ImageHoverPreview.isEnabled() && ConfigProvider.getBoolean(ConfigKeys.IMAGE_PREFETCH_VISIBLE_ENABLED, false);
+    }
+
+    /**
+     * Called once per client tick.
+     */
+    public static void tick(Minecraft client) {
+        if (!(client.screen instanceof ChatScreen) || !isEnabled()) {
+            // Reopening the chat walks the page again
+            lastBottomLine = null;
+            return;
+        }
+
+        ChatComponent chat = client.gui.getChat();
+        ChatComponentAccessor accessor = (ChatComponentAccessor) chat;
+        List<GuiMessage.Line> lines = accessor.getTrimmedMessages();
+        int scrollPos = accessor.getChatScrollbarPos();
+        int linesPerPage = chat.getLinesPerPage();
+        int guiWidth = client.getWindow().getGuiScaledWidth();
+        int guiHeight = client.getWindow().getGuiScaledHeight();
+        if (scrollPos >= lines.size()) return;
+
+        GuiMessage.Line bottomLine = lines.get(scrollPos);
+        if (bottomLine == lastBottomLine && scrollPos == lastScrollPos && linesPerPage == lastLinesPerPage
+                && guiWidth == lastGuiWidth && guiHeight == lastGuiHeight) {
+            return;
+        }
+        lastBottomLine = bottomLine;
+        lastScrollPos = scrollPos;
+        lastLinesPerPage = linesPerPage;
+        lastGuiWidth = guiWidth;
+        lastGuiHeight = guiHeight;
+
+        // Index 0 is the newest line; walk the page top-down so the newest link is queued last,
+        // which ImagePrefetcher serves first
+        int visibleCount = Math.min(lines.size() - scrollPos, linesPerPage);
+        Set<String> urls = new LinkedHashSet<>();
+        for (int i = visibleCount - 1; i >= 0; i--) {
+            collectImageUrls(lines.get(scrollPos + i), urls);
+        }
+
+        int maxWidth = guiWidth / ImageHoverPreview.PREVIEW_SIZE_DIVISOR;
+        int maxHeight = guiHeight / ImageHoverPreview.PREVIEW_SIZE_DIVISOR;
+        for (String url : urls) {
+            ImagePrefetcher.enqueue(url, maxWidth, maxHeight);
+        }
+    }
+
+    private static void collectImageUrls(GuiMessage.Line line, Set<String> urls) {
+        Style[] lastStyle = {null};
+        line.content().accept((index, style, codePoint) -> {
+            // Styles repeat for every character of a run; check each run once
+            if (style == lastStyle[0]) return true;
+            lastStyle[0] = style;
+            if (style.getClickEvent() instanceof ClickEvent.OpenUrl openUrl) {
+                String url = openUrl.uri().toString();
+                if (!urls.contains(url) && ImageHoverPreview.isImageUrl(url) && ImageHoverPreview.isWhitelisted(url)) {
+                    urls.add(url);
+                }
+            }
+            return true;
+        });
+    }
+}
@@ -1,9 +1,12 @@
 package dev.cursedatom.cursedaddons.mixin.client;
 
+import com.mojang.blaze3d.platform.Window;
 import dev.cursedatom.cursedaddons.config.ConfigKeys;
 import dev.cursedatom.cursedaddons.features.images.ImageHoverPreview;
+import dev.cursedatom.cursedaddons.features.images.ImagePrefetcher;
 import dev.cursedatom.cursedaddons.features.images.PlainTextUrlAnnotator;
 import dev.cursedatom.cursedaddons.utils.ConfigProvider;
+import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.components.ChatComponent;
 import net.minecraft.network.chat.ClickEvent;
 import net.minecraft.network.chat.Component;
@@ -38,9 +41,32 @@ public abstract class ChatComponentMixin {
         if (ConfigProvider.getBoolean(ConfigKeys.CLICK_EVENTS_ENABLED, false)) {
             content = cursedaddons$ensureClickEventHoverEvents(content);
         }
+        if (ImagePrefetcher.isEnabled()) {
+            cursedaddons$prefetchImageUrls(content);
+        }
         return content;
     }
 
+    /**
+     * Queues every whitelisted image URL in the message for background loading at the
+     * size an unshifted hover would request.
+     */
+    @Unique
+    private void cursedaddons$prefetchImageUrls(Component content) {
+        Window window = Minecraft.getInstance().getWindow();
+        int maxWidth = window.getGuiScaledWidth() / ImageHoverPreview.PREVIEW_SIZE_DIVISOR;
+        int maxHeight = window.getGuiScaledHeight() / ImageHoverPreview.PREVIEW_SIZE_DIVISOR;
+        content.visit((style, text) -> {
+            if (style.getClickEvent() instanceof ClickEvent.OpenUrl openUrl) {
+                String url = openUrl.uri().toString();
+                if (ImageHoverPreview.isImageUrl(url) && ImageHoverPreview.isWhitelisted(url)) {
+                    ImagePrefetcher.enqueue(url, maxWidth, maxHeight);
+                }
+            }
+            return Optional.empty();
+        }, Style.EMPTY);
+    }
+
     /**
      * Adds a "Loading..." HoverEvent to any image URL ClickEvent styles that lack one.
      * Covers server-sent messages that include ClickEvent.OpenUrl but no HoverEvent.
@@ -3,9 +3,12 @@ package dev.cursedatom.cursedaddons.mixin.client;
 import dev.cursedatom.cursedaddons.config.ConfigKeys;
 import dev.cursedatom.cursedaddons.features.general.ClickEventsPreviewer;
 import dev.cursedatom.cursedaddons.features.images.ImageCache;
+import dev.cursedatom.cursedaddons.features.images.ImageExecutors;
 import dev.cursedatom.cursedaddons.features.images.ImageHoverEvent;
 import dev.cursedatom.cursedaddons.features.images.ImageHoverPreview;
+import dev.cursedatom.cursedaddons.features.images.ImageJobScheduler;
 import dev.cursedatom.cursedaddons.features.images.ImageTextureManager;
+import dev.cursedatom.cursedaddons.features.images.RecentImages;
 import dev.cursedatom.cursedaddons.utils.ConfigProvider;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.Font;
@@ -131,15 +134,17 @@ public abstract class DrawContextMixin {
             maxWidth = screenWidth;
             maxHeight = screenHeight;
         } else {
-            maxWidth = screenWidth / 4;
-            maxHeight = screenHeight / 4;
+            maxWidth = screenWidth / ImageHoverPreview.PREVIEW_SIZE_DIVISOR;
+            maxHeight = screenHeight / ImageHoverPreview.PREVIEW_SIZE_DIVISOR;
         }
 
         String cacheKey = ImageTextureManager.getCacheKey(imageUrl, maxWidth, maxHeight);
+        // Keeps the load for this key alive; it is cancelled shortly after hovering stops
+        ImageJobScheduler.touch(cacheKey);
         ImageHoverEvent.ImageData imageData = ImageTextureManager.getImageData(cacheKey, imageUrl);
 
         if (imageData == null || imageData.getTextureLocation() == null) {
-            String failureReason = ImageCache.getFailureReason(imageUrl, maxWidth, maxHeight);
+            String failureReason = ImageCache.getFailureReason(imageUrl);
             if (failureReason != null) {
                 this.setTooltipForNextFrame(font,
                     Component.literal("Error Loading Image: " + failureReason),
@@ -153,6 +158,9 @@ public abstract class DrawContextMixin {
             return;
         }
 
+        if (!shiftHeld) {
+            RecentImages.recordView(imageUrl, maxWidth, maxHeight);
+        }
         this.nextStratum();
         cursedaddons$renderImageTooltip(graphics, imageData, mouseX, mouseY);
     }
@@ -179,7 +187,7 @@ public abstract class DrawContextMixin {
             if (result != null) {
                 ImageTextureManager.prepareAndRegister(cacheKey, result);
             }
-        });
+        }, ImageExecutors.decode());
     }
 
     @Unique
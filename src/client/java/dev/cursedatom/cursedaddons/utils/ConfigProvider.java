@@ -51,6 +51,22 @@ public class ConfigProvider {
         return defaultValue;
     }
 
+    public static int getInt(String key, int defaultValue) {
+        Object value = get(key);
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        return defaultValue;
+    }
+
+    public static double getDouble(String key, double defaultValue) {
+        Object value = get(key);
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return defaultValue;
+    }
+
     @SuppressWarnings("unchecked")
     public static List<Object> getList(String key) {
         Object value = get(key);
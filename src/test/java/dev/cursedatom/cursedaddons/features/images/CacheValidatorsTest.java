@@ -0,0 +1,125 @@
+package dev.cursedatom.cursedaddons.features.images;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheValidatorsTest {
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+    // Slack for the clock moving between building the validators and checking them
+    private static final long SLACK_MS = 5_000;
+
+    private static CacheValidators fromHeaders(String... namesAndValues) {
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            headers.put(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return CacheValidators.fromHeaders(headers::get);
+    }
+
+    private static String httpDate(long epochMillis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(
+            ZonedDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC));
+    }
+
+    private static void assertExpiresIn(long expectedMs, CacheValidators validators) {
+        long remaining = validators.expiresAt() - System.currentTimeMillis();
+        assertTrue(Math.abs(remaining - expectedMs) <= SLACK_MS,
+            "expected to expire in ~" + expectedMs + " ms but was " + remaining + " ms");
+    }
+
+    @Test
+    void maxAgeSetsFreshness() {
+        CacheValidators validators = fromHeaders("Cache-Control", "public, max-age=600");
+        assertTrue(validators.isFresh());
+        assertFalse(validators.noStore());
+        assertExpiresIn(600_000, validators);
+    }
+
+    @Test
+    void maxAgeWinsOverExpires() {
+        CacheValidators validators = fromHeaders(
+            "Cache-Control", "max-age=60",
+            "Expires", httpDate(System.currentTimeMillis() + 10 * HOUR_MS));
+        assertExpiresIn(60_000, validators);
+    }
+
+    @Test
+    void noCacheIsImmediatelyStale() {
+        CacheValidators validators = fromHeaders("Cache-Control", "no-cache, max-age=600", "ETag", "\"a\"");
+        assertFalse(validators.isFresh());
+        assertTrue(validators.canRevalidate());
+    }
+
+    @Test
+    void noStoreIsFlagged() {
+        assertTrue(fromHeaders("Cache-Control", "No-Store").noStore());
+    }
+
+    @Test
+    void pastExpiresIsStale() {
+        CacheValidators validators = fromHeaders("Expires", httpDate(System.currentTimeMillis() - HOUR_MS));
+        assertFalse(validators.isFresh());
+    }
+
+    @Test
+    void unparseableExpiresIsStale() {
+        assertFalse(fromHeaders("Expires", "0").isFresh());
+    }
+
+    @Test
+    void lastModifiedHeuristicIsTenthOfAge() {
+        long now = System.currentTimeMillis();
+        CacheValidators validators = fromHeaders("Last-Modified", httpDate(now - 10 * HOUR_MS));
+        assertExpiresIn(HOUR_MS, validators);
+        assertTrue(validators.canRevalidate());
+    }
+
+    @Test
+    void lastModifiedHeuristicIsCappedAtOneDay() {
+        long now = System.currentTimeMillis();
+        CacheValidators validators = fromHeaders("Last-Modified", httpDate(now - 1000 * HOUR_MS));
+        assertExpiresIn(24 * HOUR_MS, validators);
+    }
+
+    @Test
+    void noHeadersUseDefaultFreshness() {
+        CacheValidators validators = fromHeaders();
+        assertExpiresIn(HOUR_MS, validators);
+        assertFalse(validators.canRevalidate());
+    }
+
+    @Test
+    void notModifiedKeepsOmittedValidatorsAndTakesNewFreshness() {
+        CacheValidators stored = new CacheValidators("\"v1\"", "Mon, 01 Jan 2024 00:00:00 GMT", 0, false);
+        CacheValidators notModified = fromHeaders("Cache-Control", "max-age=120");
+
+        CacheValidators updated = stored.updatedBy(notModified);
+        assertEquals("\"v1\"", updated.etag());
+        assertEquals("Mon, 01 Jan 2024 00:00:00 GMT", updated.lastModified());
+        assertEquals(notModified.expiresAt(), updated.expiresAt());
+        assertTrue(updated.isFresh());
+    }
+
+    @Test
+    void notModifiedReplacesChangedEtag() {
+        CacheValidators stored = new CacheValidators("\"v1\"", null, 0, false);
+        CacheValidators updated = stored.updatedBy(fromHeaders("ETag", "\"v2\""));
+        assertEquals("\"v2\"", updated.etag());
+    }
+
+    @Test
+    void conditionalHeadersCarryBothValidators() {
+        Map<String, String> sent = new HashMap<>();
+        new CacheValidators("\"v1\"", "Mon, 01 Jan 2024 00:00:00 GMT", 0, false).applyConditionalHeaders(sent::put);
+        assertEquals("\"v1\"", sent.get("If-None-Match"));
+        assertEquals("Mon, 01 Jan 2024 00:00:00 GMT", sent.get("If-Modified-Since"));
+    }
+}
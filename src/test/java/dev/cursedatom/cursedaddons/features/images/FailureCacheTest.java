@@ -0,0 +1,106 @@
+package dev.cursedatom.cursedaddons.features.images;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FailureCacheTest {
+    // Long enough that scheduling jitter cannot make a backoff look expired or still active
+    private static final long BASE_MS = 200;
+    private static final long STEP_MS = 250;
+
+    private static final String URL = "https://cdn.example.com/a.png";
+
+    static {
+        // FailureCache looks hosts up through HttpFetcher; load it (and its HttpClient) up front
+        // so that one-time setup does not eat into the first test's backoff window
+        HttpFetcher.hostOf(URL);
+    }
+
+    @Test
+    void transientFailureBacksOffForTheBaseDelay() throws Exception {
+        FailureCache cache = new FailureCache(16, BASE_MS);
+        cache.recordFailure(URL, new IOException("Connection reset"));
+        assertEquals("Connection reset", cache.getBlockedReason(URL));
+
+        Thread.sleep(STEP_MS);
+        assertNull(cache.getBlockedReason(URL));
+    }
+
+    @Test
+    void consecutiveFailuresDoubleTheBackoff() throws Exception {
+        FailureCache cache = new FailureCache(16, BASE_MS);
+        cache.recordFailure(URL, new IOException("first"));
+        Thread.sleep(STEP_MS);
+        cache.recordFailure(URL, new IOException("second"));
+
+        Thread.sleep(STEP_MS);
+        assertEquals("second", cache.getBlockedReason(URL));
+        Thread.sleep(STEP_MS);
+        assertNull(cache.getBlockedReason(URL));
+    }
+
+    @Test
+    void repeatedReportDuringBackoffCountsOnce() throws Exception {
+        FailureCache cache = new FailureCache(16, BASE_MS);
+        cache.recordFailure(URL, new IOException("normal size"));
+        cache.recordFailure(URL, new IOException("shift size"));
+
+        Thread.sleep(STEP_MS);
+        assertNull(cache.getBlockedReason(URL));
+    }
+
+    @Test
+    void permanentFailureOutlastsTransientBackoff() throws Exception {
+        FailureCache cache = new FailureCache(16, BASE_MS);
+        cache.recordFailure(URL, new FetchException("HTTP 404", true));
+
+        Thread.sleep(STEP_MS);
+        assertEquals("HTTP 404", cache.getBlockedReason(URL));
+    }
+
+    @Test
+    void hostBacksOffAfterThreeFailingUrls() {
+        FailureCache cache = new FailureCache(16, BASE_MS);
+        cache.recordFailure("https://dead.example.com/1.png", new IOException("timeout"));
+        cache.recordFailure("https://dead.example.com/2.png", new IOException("timeout"));
+        assertNull(cache.getBlockedReason("https://dead.example.com/4.png"));
+
+        cache.recordFailure("https://dead.example.com/3.png", new IOException("timeout"));
+        assertEquals("timeout", cache.getBlockedReason("https://dead.example.com/4.png"));
+        assertNull(cache.getBlockedReason("https://alive.example.com/4.png"));
+    }
+
+    @Test
+    void permanentFailuresDoNotCountAgainstTheHost() {
+        FailureCache cache = new FailureCache(16, BASE_MS);
+        for (int i = 0; i < 3; i++) {
+            cache.recordFailure("https://cdn.example.com/" + i + ".png", new FetchException("HTTP 404", true));
+        }
+        assertNull(cache.getBlockedReason("https://cdn.example.com/other.png"));
+    }
+
+    @Test
+    void successClearsUrlAndHost() {
+        FailureCache cache = new FailureCache(16, BASE_MS);
+        for (int i = 0; i < 3; i++) {
+            cache.recordFailure("https://cdn.example.com/" + i + ".png", new IOException("timeout"));
+        }
+        cache.recordSuccess("https://cdn.example.com/0.png");
+        assertNull(cache.getBlockedReason("https://cdn.example.com/0.png"));
+        assertNull(cache.getBlockedReason("https://cdn.example.com/other.png"));
+    }
+
+    @Test
+    void leastRecentlyUsedUrlIsEvictedAtCapacity() {
+        FailureCache cache = new FailureCache(2, BASE_MS);
+        cache.recordFailure("https://a.example.com/1.png", new FetchException("gone", true));
+        cache.recordFailure("https://b.example.com/2.png", new FetchException("gone", true));
+        cache.recordFailure("https://c.example.com/3.png", new FetchException("gone", true));
+
+        assertNull(cache.getBlockedReason("https://a.example.com/1.png"));
+        assertEquals("gone", cache.getBlockedReason("https://c.example.com/3.png"));
+    }
+}
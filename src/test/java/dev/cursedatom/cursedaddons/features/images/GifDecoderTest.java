@@ -0,0 +1,155 @@
+package dev.cursedatom.cursedaddons.features.images;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GifDecoderTest {
+    // 1x1 GIF89a: two-colour table (white, black), transparent index 0, one pixel of index 0
+    private static final byte[] TRANSPARENT_PIXEL = HexFormat.of().parseHex(
+        "47494638396101000100800000ffffff00000021f90401000000002c00000000010001000002024401003b");
+    // 2x2 GIF87a: four-colour table (red, green, blue, white) and pixels 0 1 / 2 3, encoded as
+    // the LZW codes clear, 0, 1, 2 (3 bits each) then 3, end (4 bits, once entry 8 is added)
+    private static final byte[] FOUR_COLOURS = HexFormat.of().parseHex(
+        "474946383761" + "0200" + "0200" + "810000"
+            + "ff0000" + "00ff00" + "0000ff" + "ffffff"
+            + "2c" + "00000000" + "0200" + "0200" + "00"
+            + "02" + "03443405" + "00"
+            + "3b");
+
+    private record Frame(int[] pixels, int width, int height) {}
+
+    private static List<Frame> decode(byte[] gif) throws Exception {
+        List<Frame> frames = new ArrayList<>();
+        GifDecoder.decodeFrames(new ByteArrayInputStream(gif), () -> false, (canvas, width, height, delayMs) -> {
+            frames.add(new Frame(canvas.clone(), width, height));
+            return true;
+        });
+        return frames;
+    }
+
+    /**
+     * An indexed image with {@code colours} random palette entries and noisy pixels, so the
+     * encoder's code table fills up and is reset several times.
+     */
+    private static BufferedImage noise(int width, int height, int colours, long seed) {
+        Random random = new Random(seed);
+        byte[] r = new byte[colours], g = new byte[colours], b = new byte[colours];
+        random.nextBytes(r);
+        random.nextBytes(g);
+        random.nextBytes(b);
+        int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(colours - 1));
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED,
+            new IndexColorModel(bits, colours, r, g, b));
+        int index = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                // Mostly noise with some runs, to produce both short and long codes
+                if (random.nextInt(4) != 0) index = random.nextInt(colours);
+                image.getRaster().setSample(x, y, 0, index);
+            }
+        }
+        return image;
+    }
+
+    private static byte[] writeGif(BufferedImage image, boolean interlaced) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setProgressiveMode(interlaced ? ImageWriteParam.MODE_DEFAULT : ImageWriteParam.MODE_DISABLED);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static void assertRoundTrip(BufferedImage image, boolean interlaced) throws Exception {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        List<Frame> frames = decode(writeGif(image, interlaced));
+        assertEquals(1, frames.size());
+        Frame frame = frames.get(0);
+        assertEquals(width, frame.width());
+        assertEquals(height, frame.height());
+        assertArrayEquals(image.getRGB(0, 0, width, height, null, 0, width), frame.pixels());
+    }
+
+    @Test
+    void decodesKnownTransparentPixel() throws Exception {
+        List<Frame> frames = decode(TRANSPARENT_PIXEL);
+        assertEquals(1, frames.size());
+        assertEquals(1, frames.get(0).width());
+        assertEquals(0, frames.get(0).pixels()[0] >>> 24);
+    }
+
+    @Test
+    void decodesKnownFourColourImage() throws Exception {
+        List<Frame> frames = decode(FOUR_COLOURS);
+        assertEquals(1, frames.size());
+        assertArrayEquals(new int[]{0xFFFF0000, 0xFF00FF00, 0xFF0000FF, 0xFFFFFFFF}, frames.get(0).pixels());
+    }
+
+    @Test
+    void roundTripsTwoColourImage() throws Exception {
+        assertRoundTrip(noise(31, 17, 2, 1), false);
+    }
+
+    @Test
+    void roundTripsFullPaletteThroughCodeTableResets() throws Exception {
+        assertRoundTrip(noise(200, 150, 256, 2), false);
+    }
+
+    @Test
+    void roundTripsInterlacedImage() throws Exception {
+        // Heights that leave each of the four interlace passes partly or entirely empty
+        for (int height = 1; height <= 17; height++) {
+            assertRoundTrip(noise(13, height, 16, height), true);
+        }
+    }
+
+    @Test
+    void encodesFramesInOrderWithMoreFramesThanWorkers() throws Exception {
+        int count = 25;
+        List<int[]> pixels = new ArrayList<>();
+        int[] delays = new int[count];
+        for (int i = 0; i < count; i++) {
+            int[] frame = new int[8 * 4];
+            Arrays.fill(frame, 0xFF000000 | i * 10);
+            pixels.add(frame);
+            delays[i] = 20 + i;
+        }
+
+        GifDecoder.GifData data = GifDecoder.encode(new GifDecoder.Frames(pixels, delays, 8, 4), 0, 0, () -> false);
+        assertEquals(count, data.getEncodedFrames().size());
+        assertArrayEquals(delays, data.getDelays());
+        for (int i = 0; i < count; i++) {
+            BufferedImage frame = ImageIO.read(new ByteArrayInputStream(data.getEncodedFrames().get(i)));
+            assertEquals(0xFF000000 | i * 10, frame.getRGB(3, 2), "frame " + i);
+        }
+    }
+
+    @Test
+    void truncatedStreamFailsBeforeFirstFrame() {
+        byte[] truncated = Arrays.copyOf(FOUR_COLOURS, 20);
+        assertThrows(Exception.class, () -> decode(truncated));
+    }
+}
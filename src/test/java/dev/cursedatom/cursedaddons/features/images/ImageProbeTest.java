@@ -0,0 +1,151 @@
+package dev.cursedatom.cursedaddons.features.images;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageProbeTest {
+    private static byte[] encode(String format, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(ImageIO.write(image, format, out));
+        return out.toByteArray();
+    }
+
+    private static ImageProbe.Info probe(byte[] data) {
+        return ImageProbe.probe(data, data.length);
+    }
+
+    /**
+     * A PNG signature and IHDR claiming the given size, followed by filler.
+     */
+    private static byte[] pngHeader(int width, int height, int totalLength) {
+        byte[] data = new byte[totalLength];
+        byte[] signature = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 13, 'I', 'H', 'D', 'R'};
+        System.arraycopy(signature, 0, data, 0, signature.length);
+        writeBe32(data, 16, width);
+        writeBe32(data, 20, height);
+        return data;
+    }
+
+    private static void writeBe32(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >>> 24);
+        data[offset + 1] = (byte) (value >>> 16);
+        data[offset + 2] = (byte) (value >>> 8);
+        data[offset + 3] = (byte) value;
+    }
+
+    /**
+     * A JPEG whose SOF0 segment comes after an APP1 segment of {@code appLength} bytes.
+     */
+    private static byte[] jpegWithLargeApp(int appLength, int width, int height) {
+        byte[] data = new byte[2 + 2 + appLength + 11];
+        data[0] = (byte) 0xFF;
+        data[1] = (byte) 0xD8;
+        data[2] = (byte) 0xFF;
+        data[3] = (byte) 0xE1;
+        data[4] = (byte) (appLength >>> 8);
+        data[5] = (byte) appLength;
+        int sof = 4 + appLength;
+        data[sof] = (byte) 0xFF;
+        data[sof + 1] = (byte) 0xC0;
+        data[sof + 2] = 0;
+        data[sof + 3] = 8;
+        data[sof + 4] = 8;
+        data[sof + 5] = (byte) (height >>> 8);
+        data[sof + 6] = (byte) height;
+        data[sof + 7] = (byte) (width >>> 8);
+        data[sof + 8] = (byte) width;
+        return data;
+    }
+
+    @Test
+    void readsPngDimensions() throws IOException {
+        assertEquals(new ImageProbe.Info(ImageProbe.Format.PNG, 37, 11), probe(encode("png", 37, 11)));
+    }
+
+    @Test
+    void readsGifDimensions() throws IOException {
+        assertEquals(new ImageProbe.Info(ImageProbe.Format.GIF, 5, 300), probe(encode("gif", 5, 300)));
+    }
+
+    @Test
+    void readsJpegDimensions() throws IOException {
+        assertEquals(new ImageProbe.Info(ImageProbe.Format.JPEG, 64, 48), probe(encode("jpg", 64, 48)));
+    }
+
+    @Test
+    void skipsJpegSegmentsBeforeTheFrameHeader() {
+        assertEquals(new ImageProbe.Info(ImageProbe.Format.JPEG, 800, 600), probe(jpegWithLargeApp(20_000, 800, 600)));
+    }
+
+    @Test
+    void readsWebpVp8xCanvas() {
+        byte[] data = new byte[30];
+        System.arraycopy("RIFF\0\0\0\0WEBPVP8X".getBytes(StandardCharsets.US_ASCII), 0, data, 0, 16);
+        // Canvas width-1 and height-1 as 24-bit little-endian
+        data[24] = (byte) 0xFF;
+        data[25] = 0x03;
+        data[27] = (byte) 0xDF;
+        data[28] = 0x01;
+        assertEquals(new ImageProbe.Info(ImageProbe.Format.WEBP, 1024, 480), probe(data));
+    }
+
+    @Test
+    void knownFormatWithoutDimensionsYet() {
+        ImageProbe.Info info = ImageProbe.probe(pngHeader(10, 10, 24), 12);
+        assertEquals(ImageProbe.Format.PNG, info.format());
+        assertFalse(info.hasDimensions());
+    }
+
+    @Test
+    void unknownFormatIsNull() {
+        assertNull(probe("<!DOCTYPE html><html>".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    void checkRejectsCanvasOverBudget() {
+        FetchException e = assertThrows(FetchException.class, () -> ImageProbe.check(pngHeader(100_000, 100_000, 64)));
+        assertTrue(e.isPermanent());
+    }
+
+    @Test
+    void checkAcceptsCanvasWithinBudget() throws Exception {
+        assertEquals(4000 * 3000L, ImageProbe.check(pngHeader(4000, 3000, 64)).pixels());
+    }
+
+    @Test
+    void readCheckedRejectsFromTheHeaderAlone() {
+        byte[] head = pngHeader(100_000, 100_000, 4096);
+        InputStream body = new InputStream() {
+            private int position = 0;
+
+            @Override
+            public int read() throws IOException {
+                if (position >= head.length) throw new IOException("Read past the header");
+                return head[position++] & 0xFF;
+            }
+        };
+        assertThrows(FetchException.class, () -> ImageProbe.readChecked(body));
+    }
+
+    @Test
+    void readCheckedReadsPastLargeJpegSegments() throws Exception {
+        byte[] data = jpegWithLargeApp(20_000, 800, 600);
+        assertArrayEquals(data, ImageProbe.readChecked(new ByteArrayInputStream(data)));
+    }
+
+    @Test
+    void readCheckedRejectsJpegFrameBeyondFirstChunk() {
+        byte[] data = jpegWithLargeApp(20_000, 60_000, 60_000);
+        assertThrows(FetchException.class, () -> ImageProbe.readChecked(new ByteArrayInputStream(data)));
+    }
+}
@@ -0,0 +1,151 @@
+package dev.cursedatom.cursedaddons.features.images;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OgImageScannerTest {
+    private static final int MAX_BYTES = 512 * 1024;
+    private static final String IMAGE = "https://cdn.example.com/preview.jpg";
+
+    /**
+     * Serves {@code data} in reads of at most {@code chunk} bytes (the first read stops at
+     * {@code firstRead} if positive), and fails any read that starts at or after {@code limit}.
+     */
+    private static final class ChunkedStream extends InputStream {
+        private final byte[] data;
+        private final int chunk;
+        private final int limit;
+        private int firstRead;
+        private int position = 0;
+
+        ChunkedStream(byte[] data, int chunk, int firstRead, int limit) {
+            this.data = data;
+            this.chunk = chunk;
+            this.firstRead = firstRead;
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (position >= limit) throw new IOException("Read past " + limit);
+            if (position >= data.length) return -1;
+            int count = Math.min(Math.min(length, chunk), data.length - position);
+            if (firstRead > 0) {
+                count = Math.min(count, firstRead);
+                firstRead = 0;
+            }
+            System.arraycopy(data, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+    }
+
+    private static String scan(String html) throws IOException {
+        return OgImageScanner.scan(new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8)), MAX_BYTES);
+    }
+
+    private static String page(String head) {
+        return "<!DOCTYPE html><html><head><title>t</title>" + head + "</head><body>body</body></html>";
+    }
+
+    @Test
+    void findsOgImage() throws IOException {
+        assertEquals(IMAGE, scan(page("<meta property=\"og:image\" content=\"" + IMAGE + "\">")));
+    }
+
+    @Test
+    void acceptsAttributesInAnyOrderAndQuoting() throws IOException {
+        assertEquals(IMAGE, scan(page("<META content='" + IMAGE + "' NAME=twitter:image />")));
+    }
+
+    @Test
+    void firstMatchWins() throws IOException {
+        assertEquals(IMAGE, scan(page(
+            "<meta property=\"og:image\" content=\"" + IMAGE + "\">"
+                + "<meta property=\"og:image\" content=\"https://cdn.example.com/second.jpg\">")));
+    }
+
+    @Test
+    void decodesEntitiesInTheUrl() throws IOException {
+        assertEquals("https://cdn.example.com/i.jpg?a=1&b=2",
+            scan(page("<meta property=\"og:image\" content=\"https://cdn.example.com/i.jpg?a=1&amp;b=2\">")));
+    }
+
+    @Test
+    void ignoresOtherMetaAndLookalikeAttributes() throws IOException {
+        assertNull(scan(page("<meta property=\"og:image:width\" content=\"640\">"
+            + "<meta data-property=\"og:image\" content=\"" + IMAGE + "\">"
+            + "<metadata property=\"og:image\" content=\"" + IMAGE + "\">")));
+    }
+
+    @Test
+    void ignoresTagsInsideComments() throws IOException {
+        assertNull(scan(page("<!-- <meta property=\"og:image\" content=\"" + IMAGE + "\"> -->")));
+    }
+
+    @Test
+    void stopsAtEndOfHead() throws IOException {
+        String html = page("") + "<meta property=\"og:image\" content=\"" + IMAGE + "\">";
+        assertNull(scan(html));
+    }
+
+    @Test
+    void stopsReadingOnceTheTagIsComplete() throws IOException {
+        String head = page("<meta property=\"og:image\" content=\"" + IMAGE + "\">");
+        int tagEnd = head.indexOf('>', head.indexOf("og:image")) + 1;
+        byte[] html = (head + "x".repeat(100_000)).getBytes(StandardCharsets.UTF_8);
+        // Any read after the tag has been delivered fails the scan
+        assertEquals(IMAGE, OgImageScanner.scan(new ChunkedStream(html, 64, tagEnd, tagEnd), MAX_BYTES));
+    }
+
+    @Test
+    void stopsReadingAtEndOfHead() throws IOException {
+        String head = "<html><head><title>t</title></head>";
+        byte[] html = (head + "<body>" + "x".repeat(100_000)).getBytes(StandardCharsets.UTF_8);
+        assertNull(OgImageScanner.scan(new ChunkedStream(html, 64, head.length(), head.length()), MAX_BYTES));
+    }
+
+    @Test
+    void findsTagSplitAtEveryReadBoundary() throws IOException {
+        byte[] html = page("<!-- note --><meta property=\"og:image\" content=\"" + IMAGE + "\">").getBytes(StandardCharsets.UTF_8);
+        for (int split = 1; split < html.length; split++) {
+            assertEquals(IMAGE, OgImageScanner.scan(new ChunkedStream(html, html.length, split, Integer.MAX_VALUE), MAX_BYTES),
+                "split at " + split);
+        }
+    }
+
+    @Test
+    void findsTagDeliveredOneByteAtATime() throws IOException {
+        byte[] html = page("<meta property=\"og:image\" content=\"" + IMAGE + "\">").getBytes(StandardCharsets.UTF_8);
+        assertEquals(IMAGE, OgImageScanner.scan(new ChunkedStream(html, 1, 0, Integer.MAX_VALUE), MAX_BYTES));
+    }
+
+    @Test
+    void findsTagStraddlingTheFirstBufferBoundary() throws IOException {
+        for (int padding = 4050; padding < 4110; padding++) {
+            // A long comment pushes the tag (or the comment's own end) across the 4 KB buffer edge
+            String html = page("<!--" + "c".repeat(padding) + "--><meta property=\"og:image\" content=\"" + IMAGE + "\">");
+            assertEquals(IMAGE, scan(html), "padding " + padding);
+        }
+    }
+
+    @Test
+    void givesUpAtMaxBytes() throws IOException {
+        String html = "<html><head>" + "<meta name=\"x\" content=\"y\">".repeat(1000)
+            + "<meta property=\"og:image\" content=\"" + IMAGE + "\"></head>";
+        InputStream in = new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8));
+        assertNull(OgImageScanner.scan(in, 8 * 1024));
+    }
+}